@@ -0,0 +1,192 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Compares the sample storage of database version 1, the sid in every row
+ * of "data", with the normalized "series" and "samples" tables: the time
+ * to insert a log, to read the history of a field and the extreme of its
+ * last minute, and the size of the file. Run it on a device, the numbers
+ * end up in the log.
+ */
+public class SchemaBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "CanZE";
+
+    // 50 fields logged every second for a bit more than half an hour
+    private static final int SERIES = 50;
+    private static final int SAMPLES = 2000;
+    private static final int QUERIES = 20;
+    private static final long START = 1450000000000L;
+
+    private interface Schema
+    {
+        void create(SQLiteDatabase db);
+        SQLiteStatement compileInsert(SQLiteDatabase db);
+        void bind(SQLiteStatement insert, int series, long moment, double value);
+        Cursor history(SQLiteDatabase db, int series);
+        Cursor min(SQLiteDatabase db, int series, long since);
+    }
+
+    private static String sid(int series)
+    {
+        return Integer.toHexString(0x700 + series * 3) + "." + Integer.toHexString(0x6100 + series) + "." + (16 + series % 48);
+    }
+
+    public void testSchemas()
+    {
+        long oldSize = benchmark("version 1", new Schema() {
+            @Override
+            public void create(SQLiteDatabase db) {
+                db.execSQL("CREATE TABLE data (sid TEXT NOT NULL, moment INTEGER NOT NULL, value REAL NOT NULL)");
+                db.execSQL("CREATE INDEX indexSid ON data (sid)");
+            }
+
+            @Override
+            public SQLiteStatement compileInsert(SQLiteDatabase db) {
+                return db.compileStatement("INSERT INTO data (sid, moment, value) VALUES (?, ?, ?)");
+            }
+
+            @Override
+            public void bind(SQLiteStatement insert, int series, long moment, double value) {
+                insert.bindString(1, sid(series));
+                insert.bindLong(2, moment);
+                insert.bindDouble(3, value);
+            }
+
+            @Override
+            public Cursor history(SQLiteDatabase db, int series) {
+                return db.rawQuery("SELECT * FROM data WHERE sid=? ORDER BY moment ASC", new String[] {sid(series)});
+            }
+
+            @Override
+            public Cursor min(SQLiteDatabase db, int series, long since) {
+                return db.rawQuery("SELECT MIN(value) FROM data WHERE sid=? AND moment>=?", new String[] {sid(series), Long.toString(since)});
+            }
+        });
+
+        long newSize = benchmark("normalized", new Schema() {
+            @Override
+            public void create(SQLiteDatabase db) {
+                // the tables as the app creates them, without touching its database
+                new CanzeOpenHelper(getContext()).onCreate(db);
+                for (int series = 0; series < SERIES; series++) {
+                    db.execSQL("INSERT INTO series (id, sid) VALUES (?, ?)", new Object[] {series + 1, sid(series)});
+                }
+            }
+
+            @Override
+            public SQLiteStatement compileInsert(SQLiteDatabase db) {
+                return db.compileStatement("INSERT OR REPLACE INTO samples (series_id, moment, value) VALUES (?, ?, ?)");
+            }
+
+            @Override
+            public void bind(SQLiteStatement insert, int series, long moment, double value) {
+                insert.bindLong(1, series + 1);
+                insert.bindLong(2, moment);
+                insert.bindDouble(3, value);
+            }
+
+            @Override
+            public Cursor history(SQLiteDatabase db, int series) {
+                return db.rawQuery("SELECT moment, value FROM samples WHERE series_id=? ORDER BY moment ASC", new String[] {Integer.toString(series + 1)});
+            }
+
+            @Override
+            public Cursor min(SQLiteDatabase db, int series, long since) {
+                return db.rawQuery("SELECT MIN(value) FROM samples WHERE series_id=? AND moment>=?", new String[] {Integer.toString(series + 1), Long.toString(since)});
+            }
+        });
+
+        assertTrue("normalized " + newSize + " bytes, version 1 " + oldSize + " bytes", newSize < oldSize);
+    }
+
+    // fill a fresh database, log the timings and return the size of its file
+    private long benchmark(String name, Schema schema)
+    {
+        String fileName = "benchmark-" + name.replace(' ', '-') + ".db";
+        getContext().deleteDatabase(fileName);
+        File file = getContext().getDatabasePath(fileName);
+        file.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        try {
+            schema.create(db);
+
+            // the samples come in field after field, second after second
+            Random random = new Random(1);
+            SQLiteStatement insert = schema.compileInsert(db);
+            long start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                for (int sample = 0; sample < SAMPLES; sample++) {
+                    for (int series = 0; series < SERIES; series++) {
+                        schema.bind(insert, series, START + sample * 1000L + series, random.nextDouble() * 100);
+                        insert.executeInsert();
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            long insertTime = System.nanoTime() - start;
+            insert.close();
+
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                Cursor c = schema.history(db, i % SERIES);
+                int rows = 0;
+                while (c.moveToNext()) rows++;
+                c.close();
+                assertEquals(SAMPLES, rows);
+            }
+            long historyTime = System.nanoTime() - start;
+
+            long since = START + (SAMPLES - 60) * 1000L;
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES * 10; i++) {
+                Cursor c = schema.min(db, i % SERIES, since);
+                assertTrue(c.moveToFirst());
+                c.close();
+            }
+            long minTime = System.nanoTime() - start;
+
+            db.close();
+            long size = file.length();
+            Log.i(TAG, "SchemaBenchmark " + name + ": insert of " + SERIES * SAMPLES + " samples " + insertTime / 1000000 + " ms, history of "
+                    + SAMPLES + " samples " + historyTime / QUERIES / 1000 + " us, min of the last minute " + minTime / QUERIES / 10 / 1000
+                    + " us, file " + size / 1024 + " KB");
+            return size;
+        } finally {
+            if (db.isOpen()) db.close();
+            getContext().deleteDatabase(fileName);
+        }
+    }
+}
@@ -248,7 +248,7 @@ public class DtcActivity  extends CanzeActivity {
     private String getResponseUntil(int timeout, char stopChar) {
         long end = Calendar.getInstance().getTimeInMillis() + timeout;
         boolean lastWasCr = false;
-        String result = "";
+        StringBuilder result = new StringBuilder();
         while (Calendar.getInstance().getTimeInMillis() <= end) {
             try {
                 // read a byte
@@ -262,16 +262,16 @@ public class DtcActivity  extends CanzeActivity {
                         // convert it to a character
                         char ch = (char) data;
                         if (ch == '\r') {
-                            result += "\u2022";
+                            result.append('\u2022');
                             lastWasCr = true;
                         } else {
-                            if (lastWasCr) result += "\n";
-                            result += ch;
+                            if (lastWasCr) result.append('\n');
+                            result.append(ch);
                             lastWasCr = false;
                         }
                         // quit on stopchar after making sure the stop character is added to the output and
                         // a possible newline was indeed added
-                        if (ch == stopChar) return result;
+                        if (ch == stopChar) return result.toString();
                     }
                 } else {
                     // let the system breath if there was no data
@@ -287,7 +287,7 @@ public class DtcActivity  extends CanzeActivity {
             }
         }
         // quit on timeout
-        return result;
+        return result.toString();
     }
 
     // UI elements
@@ -36,7 +36,7 @@ import android.graphics.Point;
 import android.graphics.drawable.AnimationDrawable;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
+import android.os.Environment;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentTransaction;
 import android.support.v4.content.ContextCompat;
@@ -54,9 +54,11 @@ import android.view.Window;
 import android.widget.ImageView;
 import android.widget.Toast;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.UUID;
 
 import lu.fisch.canze.R;
@@ -64,6 +66,7 @@ import lu.fisch.canze.actors.Field;
 import lu.fisch.canze.actors.Fields;
 import lu.fisch.canze.actors.Frames;
 import lu.fisch.canze.bluetooth.BluetoothManager;
+import lu.fisch.canze.classes.CaptureWriter;
 import lu.fisch.canze.classes.DataLogger;
 import lu.fisch.canze.classes.DebugLogger;
 import lu.fisch.canze.database.CanzeDataSource;
@@ -126,6 +129,7 @@ public class MainActivity extends AppCompatActivity implements FieldListener /*,
     public static boolean bluetoothBackgroundMode = false;
     public static boolean debugLogMode = false;
     public static boolean fieldLogMode = false;
+    public static boolean captureMode = false;
 
     public static boolean dataExportMode = false;
     public static DataLogger  dataLogger = null; // rather use singleton in onCreate
@@ -187,10 +191,8 @@ public class MainActivity extends AppCompatActivity implements FieldListener /*,
     public static void debug(String text)
     {
         Log.d(TAG, text);
-        if(debugLogMode) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-            DebugLogger.getInstance().log(sdf.format(Calendar.getInstance().getTime()) + ": " + text);
-        }
+        // the timestamp is added by the log sink
+        if(debugLogMode) DebugLogger.getInstance().log(text);
     }
 
     public static void toast(final String message)
@@ -219,6 +221,7 @@ public class MainActivity extends AppCompatActivity implements FieldListener /*,
         dataExportMode = settings.getBoolean("optDataExport", false);
         debugLogMode = settings.getBoolean("optDebugLog", false);
         fieldLogMode = settings.getBoolean("optFieldLog", false);
+        captureMode = settings.getBoolean("optCapture", false);
         toastLevel = settings.getInt("optToast", 1);
 
         String carStr = settings.getString("car", "None");
@@ -275,6 +278,14 @@ public class MainActivity extends AppCompatActivity implements FieldListener /*,
 
         // after loading PREFERENCES we may have new values for "dataExportMode"
         dataExportMode = dataLogger.activate ( dataExportMode );
+
+        // start or stop capturing the raw responses of the device
+        if (!captureMode) CaptureWriter.getInstance().close();
+        else if (!CaptureWriter.getInstance().isOpen()) {
+            String fileName = Environment.getExternalStorageDirectory().getAbsolutePath() + "/CanZE/capture-"
+                    + new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss").format(Calendar.getInstance().getTime()) + ".bin";
+            captureMode = CaptureWriter.getInstance().open(new File(fileName));
+        }
     }
 
     private void registerApplicationFields() {
@@ -409,20 +420,8 @@ public class MainActivity extends AppCompatActivity implements FieldListener /*,
         //final ActionBar actionBar = getSupportActionBar();
         // Specify that tabs should be displayed in the action bar.
 
-        // open the database
+        // open the database, this also starts the cleaning of old samples in the background
         CanzeDataSource.getInstance(getBaseContext()).open();
-        // cleanup
-        CanzeDataSource.getInstance().cleanUp();
-
-        // setup cleaning (once every hour)
-        Runnable cleanUpRunnable = new Runnable() {
-            @Override
-            public void run() {
-                CanzeDataSource.getInstance().cleanUp();
-            }
-        };
-        Handler handler = new Handler();
-        handler.postDelayed(cleanUpRunnable, 60*1000);
 
 
         // register for bluetooth changes
@@ -492,14 +491,15 @@ public class MainActivity extends AppCompatActivity implements FieldListener /*,
             @Override
             public void run() {
                 debug("Loading fields last field values from database");
-                for(int i=0; i<fields.size(); i++)
-                {
-                    Field field = fields.get(i);
-                    field.setCalculatedValue(CanzeDataSource.getInstance().getLast(field.getSID()));
-                    //debug("MainActivity: Setting "+field.getSID()+" = "+field.getValue());
-                    //f.setValue(settings.getFloat(f.getUniqueID(), 0));
-                }
-                debug("Loading fields last field values from database (done)");
+                HashMap<String, Double> lastValues = CanzeDataSource.getInstance().getLastValues();
+                // set all values first, so the listeners don't see a half restored state ...
+                // (fields created later on get their value when they are)
+                ArrayList<Field> restored = fields.restoreValues(lastValues);
+                // ... then notify them
+                for(int i=0; i<restored.size(); i++)
+                    restored.get(i).notifyFieldListeners();
+                fields.computeVirtualFields();
+                debug("Loading fields last field values from database (done, " + restored.size() + " restored)");
             }
         })).start();
     }
@@ -724,6 +724,12 @@ public class MainActivity extends AppCompatActivity implements FieldListener /*,
         // disconnect the bluetooth
         BluetoothManager.getInstance().disconnect();
 
+        // write what has been captured so far
+        CaptureWriter.getInstance().close();
+
+        // write the queued samples and close the database
+        CanzeDataSource.getInstance().close();
+
         // un-register for bluetooth changes
         this.unregisterReceiver(broadcastReceiver);
 
@@ -374,6 +374,31 @@ public class SettingsActivity extends AppCompatActivity {
             }
         });
 
+        final CheckBox capture = (CheckBox) findViewById(R.id.captureMode);
+        capture.setChecked(MainActivity.captureMode);
+        capture.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                final boolean sdcardCheck = Environment.MEDIA_MOUNTED.equals(Environment.getExternalStorageState());
+                if (!sdcardCheck) {
+                    AlertDialog.Builder alertDialogBuilder = new AlertDialog.Builder(SettingsActivity.this);
+                    alertDialogBuilder.setTitle("I am sorry...");
+                    alertDialogBuilder
+                            .setMessage(Html.fromHtml("External SD card not available, not writeable " +
+                                    "or has not sufficient space left to capture data." +
+                                    "<br><br><b>Capture cannot be enabled!</b>"))
+                            .setCancelable(true)
+                            .setPositiveButton("OK", new DialogInterface.OnClickListener() {
+                                public void onClick(DialogInterface dialog, int id) {
+                                    capture.setChecked(false);
+                                    dialog.cancel();
+                                }
+                            });
+                    alertDialogBuilder.create().show();
+                }
+            }
+        });
+
         // display build version
         TextView tv = (TextView) findViewById(R.id.build);
         try{
@@ -450,6 +475,7 @@ public class SettingsActivity extends AppCompatActivity {
             CheckBox dataExport = (CheckBox) findViewById(R.id.dataExportMode);
             CheckBox debugLog = (CheckBox) findViewById(R.id.debugLogMode);
             CheckBox fieldLog = (CheckBox) findViewById(R.id.fieldLogMode);
+            CheckBox capture = (CheckBox) findViewById(R.id.captureMode);
             CheckBox btBackground = (CheckBox) findViewById(R.id.btBackgrounding);
             Spinner toastLevel = (Spinner) findViewById(R.id.toastLevel);
             if(deviceList.getSelectedItem()!=null) {
@@ -465,6 +491,7 @@ public class SettingsActivity extends AppCompatActivity {
                 editor.putBoolean("optDataExport", dataExport.isChecked());
                 editor.putBoolean("optDebugLog", debugLog.isChecked());
                 editor.putBoolean("optFieldLog", fieldLog.isChecked());
+                editor.putBoolean("optCapture", capture.isChecked());
                 editor.putInt("optToast", toastLevel.getSelectedItemPosition());
             }
             editor.commit();
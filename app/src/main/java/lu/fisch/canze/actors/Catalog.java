@@ -0,0 +1,192 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.actors;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import lu.fisch.canze.activities.MainActivity;
+
+/**
+ * The ECU, frame and field definitions, as compiled by the build
+ * (see catalog.gradle) from the CSV files in src/main/catalog.
+ *
+ * The asset is read once, with a single read, into plain column arrays.
+ * Ecus, Frames and Fields build their objects from these columns, so a
+ * reload (e.g. after a car switch) neither reads nor parses anything.
+ */
+class Catalog {
+
+    static final String ASSET = "catalog.bin";
+
+    private static final int MAGIC = 0x435a4354; // "CZCT"
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static Catalog instance = null;
+
+    // ECUs
+    int ecuCount = 0;
+    String[] ecuName;
+    int[] ecuRenaultId;
+    String[] ecuNetworks;
+    int[] ecuFromId;
+    int[] ecuToId;
+    String[] ecuMnemonic;
+    String[] ecuAliases;
+
+    // frames
+    int frameCount = 0;
+    int[] frameId;
+    int[] frameIntervalZoe;
+    int[] frameIntervalOther;
+    String[] frameEcu;
+
+    // fields
+    int fieldCount = 0;
+    int[] fieldFrameId;
+    short[] fieldFrom;
+    short[] fieldTo;
+    double[] fieldResolution;
+    double[] fieldOffset;
+    int[] fieldDecimals;
+    String[] fieldUnit;
+    String[] fieldRequestId;
+    String[] fieldResponseId;
+    short[] fieldOptions;
+
+    private Catalog() {}
+
+    /**
+     * @return  the catalog, loaded on first use. If the asset can't be read,
+     *          the catalog is empty.
+     */
+    static synchronized Catalog getInstance()
+    {
+        if (instance == null) {
+            instance = new Catalog();
+            long start = System.nanoTime();
+            try {
+                instance.read(load());
+                MainActivity.debug("Catalog: " + instance.ecuCount + " ECUs, " + instance.frameCount + " frames, "
+                        + instance.fieldCount + " fields loaded in " + (System.nanoTime() - start) / 1000 + " µs");
+            } catch (IOException | RuntimeException e) {
+                MainActivity.debug("Catalog: can't load " + ASSET + ": " + e.getMessage());
+                instance = new Catalog();
+            }
+        }
+        return instance;
+    }
+
+    private static ByteBuffer load() throws IOException
+    {
+        MainActivity mainActivity = MainActivity.getInstance();
+        if (mainActivity == null) throw new IOException("no context");
+        InputStream in = mainActivity.getAssets().open(ASSET);
+        try {
+            // assets know their length, so this is the one and only read
+            byte[] data = new byte[in.available()];
+            int length = 0;
+            while (length < data.length) {
+                int read = in.read(data, length, data.length - length);
+                if (read < 0) throw new IOException("truncated");
+                length += read;
+            }
+            return ByteBuffer.wrap(data);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void read(ByteBuffer buffer) throws IOException
+    {
+        if (buffer.getInt() != MAGIC) throw new IOException("not a catalog");
+        if (buffer.get() != VERSION) throw new IOException("unsupported version");
+
+        String[] strings = new String[buffer.getShort() & 0xffff];
+        byte[] data = buffer.array();
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getShort() & 0xffff;
+            strings[i] = new String(data, buffer.position(), length, UTF8);
+            buffer.position(buffer.position() + length);
+        }
+
+        int count = buffer.getShort() & 0xffff;
+        ecuName = new String[count];
+        ecuRenaultId = new int[count];
+        ecuNetworks = new String[count];
+        ecuFromId = new int[count];
+        ecuToId = new int[count];
+        ecuMnemonic = new String[count];
+        ecuAliases = new String[count];
+        for (int i = 0; i < count; i++) {
+            ecuName[i] = strings[buffer.getShort() & 0xffff];
+            ecuRenaultId[i] = buffer.getInt();
+            ecuNetworks[i] = strings[buffer.getShort() & 0xffff];
+            ecuFromId[i] = buffer.getInt();
+            ecuToId[i] = buffer.getInt();
+            ecuMnemonic[i] = strings[buffer.getShort() & 0xffff];
+            ecuAliases[i] = strings[buffer.getShort() & 0xffff];
+        }
+        ecuCount = count;
+
+        count = buffer.getShort() & 0xffff;
+        frameId = new int[count];
+        frameIntervalZoe = new int[count];
+        frameIntervalOther = new int[count];
+        frameEcu = new String[count];
+        for (int i = 0; i < count; i++) {
+            frameId[i] = buffer.getShort() & 0xffff;
+            frameIntervalZoe[i] = buffer.getInt();
+            frameIntervalOther[i] = buffer.getInt();
+            frameEcu[i] = strings[buffer.getShort() & 0xffff];
+        }
+        frameCount = count;
+
+        count = buffer.getShort() & 0xffff;
+        fieldFrameId = new int[count];
+        fieldFrom = new short[count];
+        fieldTo = new short[count];
+        fieldResolution = new double[count];
+        fieldOffset = new double[count];
+        fieldDecimals = new int[count];
+        fieldUnit = new String[count];
+        fieldRequestId = new String[count];
+        fieldResponseId = new String[count];
+        fieldOptions = new short[count];
+        for (int i = 0; i < count; i++) {
+            fieldFrameId[i] = buffer.getShort() & 0xffff;
+            fieldFrom[i] = buffer.getShort();
+            fieldTo[i] = buffer.getShort();
+            fieldResolution[i] = buffer.getDouble();
+            fieldOffset[i] = buffer.getDouble();
+            fieldDecimals[i] = buffer.get() & 0xff;
+            fieldUnit[i] = strings[buffer.getShort() & 0xffff];
+            fieldRequestId[i] = strings[buffer.getShort() & 0xffff];
+            fieldResponseId[i] = strings[buffer.getShort() & 0xffff];
+            fieldOptions[i] = buffer.getShort();
+        }
+        fieldCount = count;
+    }
+}
@@ -28,9 +28,8 @@ package lu.fisch.canze.actors;
 
 import lu.fisch.canze.activities.MainActivity;
 import lu.fisch.canze.interfaces.FieldListener;
+import lu.fisch.canze.interfaces.ScheduleListener;
 
-import java.util.ArrayList;
-import java.util.Calendar;
 
 /**
  *
@@ -38,7 +37,10 @@ import java.util.Calendar;
  */
 public class Field {
 
-    protected final ArrayList<FieldListener> fieldListeners = new ArrayList<>();
+    // copy-on-write: the array is replaced on every change, so it can be iterated without a lock
+    protected volatile FieldListener[] fieldListeners = new FieldListener[0];
+    // copied on write, like the field listeners, as they are notified on every request
+    protected volatile ScheduleListener[] scheduleListeners = new ScheduleListener[0];
 
     protected Frame frame;
     protected short from;
@@ -55,6 +57,10 @@ public class Field {
     //private int skips;
 
     protected double value = Double.NaN;
+    // the state of the last update that has been notified
+    private volatile FieldSnapshot snapshot = null;
+    // built on first use, it is asked for on every update
+    private String sid = null;
     //private int skipsCount = 0;
 
     protected long lastRequest = 0;
@@ -74,17 +80,36 @@ public class Field {
         this.responseId=responseId;
         this.options=options;
 
-        this.lastRequest=Calendar.getInstance().getTimeInMillis();
+        this.lastRequest=System.currentTimeMillis();
+    }
+
+    /**
+     * Copy the definition and the state of a field, but not its listeners
+     * @param field     the field to copy
+     */
+    protected Field(Field field) {
+        this.frame=field.frame;
+        this.from=field.from;
+        this.to=field.to;
+        this.offset=field.offset;
+        this.resolution=field.resolution;
+        this.decimals=field.decimals;
+        this.unit=field.unit;
+        this.requestId=field.requestId;
+        this.responseId=field.responseId;
+        this.options=field.options;
+        this.virtual=field.virtual;
+        this.sid=field.sid;
+
+        this.value=field.value;
+        this.lastRequest=field.lastRequest;
+        this.interval=field.interval;
     }
     
     @Override
     public Field clone()
     {
-        Field field = new Field(frame, from, to, resolution, decimals, offset, unit, requestId, responseId, options);
-        field.value = value;
-        field.lastRequest=lastRequest;
-        field.interval=interval;
-        return field;
+        return new Field(this);
     }
     
     @Override
@@ -100,10 +125,13 @@ public class Field {
 
     public String getSID()
     {
-        if(responseId!=null && !responseId.trim().isEmpty())
-            return (Integer.toHexString(frame.getId())+"."+responseId.trim()+"."+from).toLowerCase();
-        else
-            return (Integer.toHexString(frame.getId())+"."+from).toLowerCase();
+        if(sid==null) {
+            if (responseId != null && !responseId.trim().isEmpty())
+                sid = (Integer.toHexString(frame.getId()) + "." + responseId.trim() + "." + from).toLowerCase();
+            else
+                sid = (Integer.toHexString(frame.getId()) + "." + from).toLowerCase();
+        }
+        return sid;
     }
 
     public String getUniqueID()
@@ -177,16 +205,53 @@ public class Field {
     
     public void addListener(FieldListener fieldListener)
     {
-        if(!fieldListeners.contains(fieldListener)) {
-            fieldListeners.add(fieldListener);
-            // trigger immediate update to pass the reference to this field
-            fieldListener.onFieldUpdateEvent(this);
+        synchronized (this) {
+            FieldListener[] listeners = fieldListeners;
+            for (FieldListener listener : listeners)
+                if (listener.equals(fieldListener)) return;
+            FieldListener[] newListeners = new FieldListener[listeners.length + 1];
+            System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+            newListeners[listeners.length] = fieldListener;
+            fieldListeners = newListeners;
         }
+        // trigger immediate update to pass the reference to this field
+        fieldListener.onFieldUpdateEvent(this);
     }
     
     public void removeListener(FieldListener fieldListener)
     {
-        fieldListeners.remove(fieldListener);
+        synchronized (this) {
+            FieldListener[] listeners = fieldListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                if (listeners[i].equals(fieldListener)) {
+                    FieldListener[] newListeners = new FieldListener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                    fieldListeners = newListeners;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The value of a field can change while a listener is still working on
+     * the previous update. A listener that needs the value and the moment of
+     * the update it has been called for gets them from the snapshot, which
+     * is published before the listeners are notified.
+     * @return  the state of the last notified update, null if there was none yet
+     */
+    public FieldSnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * @return  the number of listeners registered
+     */
+    public int getListenerCount()
+    {
+        return fieldListeners.length;
     }
     
     /**
@@ -203,20 +268,23 @@ public class Field {
      */
     private void notifyFieldListeners(boolean async)
     {
+        // the listeners registered right now, changes made meanwhile don't disturb the loop
+        FieldListener[] listeners = fieldListeners;
+        if(listeners.length == 0) return;
+
+        // published before the listeners run, so they can get the state of this update with getSnapshot
+        snapshot = new FieldSnapshot(getSID(), getValue(), System.currentTimeMillis());
         if(!async) {
-            for(int i=0; i<fieldListeners.size(); i++) {
-                fieldListeners.get(i).onFieldUpdateEvent(this.clone());
+            for (FieldListener listener : listeners) {
+                listener.onFieldUpdateEvent(this);
             }
         } else {
-            // clone the frame to make sure modifications will 
-            final Field clone = this.clone();
-            for(int i=0; i<fieldListeners.size(); i++) {
-                final int index = i;
+            for (final FieldListener listener : listeners) {
                 (new Thread(new Runnable() {
 
                     @Override
                     public void run() {
-                        fieldListeners.get(index).onFieldUpdateEvent(clone.clone());                   
+                        listener.onFieldUpdateEvent(Field.this);
                     }
                 })).start();
             }
@@ -228,9 +296,51 @@ public class Field {
     \ ------------------------------ */
 
 
+    public void addScheduleListener(ScheduleListener scheduleListener)
+    {
+        synchronized (this) {
+            ScheduleListener[] listeners = scheduleListeners;
+            for (ScheduleListener listener : listeners)
+                if (listener.equals(scheduleListener)) return;
+            ScheduleListener[] newListeners = new ScheduleListener[listeners.length + 1];
+            System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+            newListeners[listeners.length] = scheduleListener;
+            scheduleListeners = newListeners;
+        }
+    }
+
+    public void removeScheduleListener(ScheduleListener scheduleListener)
+    {
+        synchronized (this) {
+            ScheduleListener[] listeners = scheduleListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                if (listeners[i].equals(scheduleListener)) {
+                    ScheduleListener[] newListeners = new ScheduleListener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                    scheduleListeners = newListeners;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Notify all schedulers holding this field that its due time has changed
+     */
+    private void notifyScheduleListeners()
+    {
+        // no lock held while calling out, as the schedulers have their own
+        ScheduleListener[] listeners = scheduleListeners;
+        for (ScheduleListener listener : listeners) {
+            listener.onScheduleChangeEvent(this);
+        }
+    }
+
     public void updateLastRequest()
     {
-        lastRequest = Calendar.getInstance().getTimeInMillis();
+        lastRequest = System.currentTimeMillis();
+        notifyScheduleListeners();
     }
 
     public long getLastRequest()
@@ -246,6 +356,7 @@ public class Field {
     public void setInterval(int interval)
     {
         this.interval=interval;
+        notifyScheduleListeners();
     }
 
     public int getInterval()
@@ -264,6 +375,7 @@ public class Field {
 
     public void setFrom(short from) {
         this.from = from;
+        this.sid = null;
     }
 
     public int getTo() {
@@ -287,11 +399,24 @@ public class Field {
     }
 
     public void setValue(double value) {
+        setValue(value, true);
+    }
+
+    /**
+     * @param value     the raw value
+     * @param notify    false to set the value silently, e.g. when restoring
+     *                  many fields that are notified afterwards
+     */
+    public void setValue(double value, boolean notify) {
         this.value = value;
-        if (!Double.isNaN(value)) notifyFieldListeners();
+        if (notify && !Double.isNaN(value)) notifyFieldListeners();
     }
 
     public void setCalculatedValue(double value) {
+        setCalculatedValue(value, true);
+    }
+
+    public void setCalculatedValue(double value, boolean notify) {
         // inverted conversion
         if (MainActivity.milesMode)
         {
@@ -301,7 +426,7 @@ public class Field {
                 value = value / 1.609344;
         }
         // inverted calculation
-        setValue (value / resolution + offset);
+        setValue (value / resolution + offset, notify);
     }
 
     public int getId() {
@@ -348,6 +473,7 @@ public class Field {
 
     public void setResponseId(String responseId) {
         this.responseId = responseId;
+        this.sid = null;
     }
 
     public int getCar() {
@@ -0,0 +1,62 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.actors;
+
+/**
+ * The state of a field at the moment it has been updated. It is built once
+ * per update and can't be changed, so it may be kept and shared between
+ * threads.
+ */
+public final class FieldSnapshot {
+
+    private final String sid;
+    private final double value;
+    private final long moment;
+
+    FieldSnapshot(String sid, double value, long moment)
+    {
+        this.sid = sid;
+        this.value = value;
+        this.moment = moment;
+    }
+
+    public String getSid()
+    {
+        return sid;
+    }
+
+    /**
+     * @return  the calculated value, as Field.getValue() returned it at the update
+     */
+    public double getValue()
+    {
+        return value;
+    }
+
+    /**
+     * @return  the moment (ms) of the update
+     */
+    public long getMoment()
+    {
+        return moment;
+    }
+}
@@ -36,21 +36,59 @@ public class Message {
     protected Field field;
     protected String data;
 
+    // the payload, decoded from data only once and on first use
+    private byte[] bytes = null;
+    private int length = 0;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     public Message(Field field, String data) {
         this.field=field;
         this.data=data;
     }
 
+    /**
+     * Create a message from an already decoded payload. The hex string is
+     * only built if someone asks for it.
+     * @param field     the field that has been requested
+     * @param bytes     the buffer holding the payload, it is copied
+     * @param length    the number of payload bytes in the buffer
+     */
+    public Message(Field field, byte[] bytes, int length) {
+        this.field=field;
+        this.data=null;
+        this.bytes=new byte[length];
+        this.length=length;
+        System.arraycopy(bytes, 0, this.bytes, 0, length);
+    }
+
     /* --------------------------------
      * Getters & setters
      \ ------------------------------ */
 
     public String getData() {
+        if (data == null && bytes != null) {
+            char[] hex = new char[length * 2];
+            for (int i = 0; i < length; i++) {
+                hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+            }
+            data = new String(hex);
+        }
         return data;
     }
 
+    /**
+     * @return  true if the message carries no payload at all
+     */
+    public boolean isEmpty() {
+        if (bytes != null) return length == 0;
+        return data == null || data.isEmpty();
+    }
+
     public void setData(String data) {
         this.data = data;
+        this.bytes = null;
     }
 
     public Field getField() {
@@ -65,17 +103,84 @@ public class Message {
      * Some utilities
      \ ------------------------------ */
 
-    public String getAsBinaryString()
+    /**
+     * Decode the hex payload into bytes. This is done only once per message,
+     * all fields carried by it are then extracted from the same buffer.
+     * Decoding stops at the first character pair that is not valid hex.
+     */
+    private void decode()
     {
-        String result = "";
-        for(int i=0; i<data.length(); i+=2)
-        {
-            try {
-                result += String.format("%8s", Integer.toBinaryString(Integer.parseInt(data.substring(i, i + 2), 16) & 0xFF)).replace(' ', '0');
-            }
-            catch (Exception e) {}
+        if (bytes != null) return;
+        int max = data == null ? 0 : data.length() / 2;
+        bytes = new byte[max];
+        length = 0;
+        for (int i = 0; i < max; i++) {
+            int high = Character.digit(data.charAt(2 * i), 16);
+            int low = Character.digit(data.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) break;
+            bytes[length++] = (byte) ((high << 4) | low);
+        }
+    }
+
+    /**
+     * @return  the number of payload bytes
+     */
+    public int getByteLength()
+    {
+        decode();
+        return length;
+    }
+
+    /**
+     * @return  the payload buffer itself, not a copy. Only the first
+     *          getByteLength() bytes are valid.
+     */
+    public byte[] getBytes()
+    {
+        decode();
+        return bytes;
+    }
+
+    /**
+     * @return  the number of payload bits
+     */
+    public int getBitLength()
+    {
+        decode();
+        return length * 8;
+    }
+
+    /**
+     * Extract an unsigned value from the payload. Bits are numbered from the
+     * most significant bit of the first byte on, both bounds are included.
+     * @param from  the first bit
+     * @param to    the last bit, at most 63 bits after from
+     * @return      the value of the bits, right aligned
+     */
+    public long getBits(int from, int to)
+    {
+        decode();
+        int width = to - from + 1;
+        long result = 0;
+        if (width <= 56) {
+            // all involved bytes fit into the long, so shift them in byte by byte
+            for (int i = from >> 3; i <= to >> 3; i++)
+                result = (result << 8) | (bytes[i] & 0xFF);
+            result >>>= 7 - (to & 7);
+        } else {
+            for (int i = from; i <= to; i++)
+                result = (result << 1) | ((bytes[i >> 3] >> (7 - (i & 7))) & 1);
         }
-        return result;
+        return width >= 64 ? result : result & ((1L << width) - 1);
+    }
+
+    public String getAsBinaryString()
+    {
+        decode();
+        StringBuilder result = new StringBuilder(length * 8);
+        for (int i = 0; i < length * 8; i++)
+            result.append((bytes[i >> 3] >> (7 - (i & 7))) & 1);
+        return result.toString();
     }
 
 }
\ No newline at end of file
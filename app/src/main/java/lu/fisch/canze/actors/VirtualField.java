@@ -1,65 +1,74 @@
 package lu.fisch.canze.actors;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 
 import lu.fisch.canze.interfaces.FieldListener;
 import lu.fisch.canze.interfaces.VirtualFieldAction;
 
 /**
  * Created by robertfisch on 15.11.2015.
+ *
+ * A virtual field isn't computed on every update of a field it depends on,
+ * it only gets dirty. The dirty virtual fields are computed by the
+ * VirtualFieldGraph in dependency order, once all inputs of a poll cycle
+ * are in.
  */
 public class VirtualField extends Field implements FieldListener {
 
-    // the list of fields this field depends on
-    protected HashMap<String,Field> dependantFields = new HashMap<>();
+    // the fields this field depends on, in the order the action expects them
+    protected Field[] dependantFields;
 
     // the method to be executed for the calculation of this field
     protected VirtualFieldAction virtualFieldAction = null;
 
+    // an input has changed since the last computation
+    private volatile boolean dirty = false;
 
-    public VirtualField(String responseId, HashMap<String,Field> dependantFields, String unit, VirtualFieldAction virtualFieldAction)
+
+    public VirtualField(String responseId, Field[] dependantFields, String unit, VirtualFieldAction virtualFieldAction)
     {
         // virtual frame added in the initialization block
         // super(Frames.getInstance().createVirtualIfNotExists(id), 0, 0, 1, 1, 0, unit, "", "", 0);
         // We're creating a new Field, frame 800, bit position 24-31, resolution 1, decimals 0, offset 0, given unit, empty requestId, given responseId, generic car
         super(Frames.getInstance().getById(0x800), (short)24, (short)31, 1, 0, 0, unit, "", responseId, (short)0);
 
-        // register dependant listeners
-        for (Field field : dependantFields.values()) {
-            if(field!=null)
-                field.addListener(this);
-        }
-
         this.dependantFields    = dependantFields;
         this.virtualFieldAction = virtualFieldAction;
         this.virtual            = true;
+
+        // register dependant listeners, for as long as the field lives: its own
+        // listeners come and go, but it must always know when to recompute
+        for (Field field : dependantFields) {
+            if(field!=null)
+                field.addListener(this);
+        }
     }
 
     @Override
     public void onFieldUpdateEvent(Field field) {
-        if(virtualFieldAction!=null) {
-            setValue(virtualFieldAction.updateValue(dependantFields));
-        }
+        // computed later on by the graph
+        dirty = true;
     }
 
-    @Override
-    public void removeListener(FieldListener fieldListener)
+    public boolean isDirty()
     {
-        // remove our listener
-        super.removeListener(fieldListener);
+        return dirty;
+    }
 
-        // remove listeners to dependant listeners
-        for (Field field : dependantFields.values()) {
-            fieldListeners.remove(this);
+    /**
+     * Compute the value from the current values of the dependant fields
+     */
+    void compute()
+    {
+        dirty = false;
+        if(virtualFieldAction!=null) {
+            setValue(virtualFieldAction.updateValue(dependantFields));
         }
     }
 
     public Collection<Field> getFields()
     {
-        return dependantFields.values();
+        return Arrays.asList(dependantFields);
     }
 }
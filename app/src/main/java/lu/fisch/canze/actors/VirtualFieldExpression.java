@@ -0,0 +1,396 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.actors;
+
+import java.util.ArrayList;
+
+import lu.fisch.canze.interfaces.VirtualFieldAction;
+
+/**
+ * A virtual field action compiled from a formula, e.g.
+ *     [7ec.623203.24] * [7ec.623204.24] / 1000
+ *
+ * The formula is parsed once into a tree of nodes working on doubles. Each
+ * [sid] becomes an input slot, so evaluating it neither boxes nor looks up
+ * anything. Supported are numbers, [sid], nan, + - * /, the comparisons
+ * (giving 1 or 0), cond ? a : b, parentheses and the functions abs(x),
+ * round(x), min(a, b), max(a, b) and lpf(x, k). The latter is a low-pass
+ * filter keeping its state between evaluations: each evaluation moves it
+ * by the factor k towards x, a NaN x leaves it as it is.
+ */
+public class VirtualFieldExpression implements VirtualFieldAction {
+
+    private final String expression;
+    private final Node root;
+    // the sid of each input slot
+    private final String[] dependantIds;
+
+    /**
+     * @param expression    the formula
+     * @throws IllegalArgumentException if the formula can't be parsed
+     */
+    public VirtualFieldExpression(String expression)
+    {
+        this.expression = expression;
+        Parser parser = new Parser(expression);
+        root = parser.parse();
+        dependantIds = parser.ids.toArray(new String[parser.ids.size()]);
+    }
+
+    /**
+     * @return  the sids the formula depends on, in the order of the input slots
+     */
+    public String[] getDependantIds()
+    {
+        return dependantIds;
+    }
+
+    @Override
+    public double updateValue(Field[] dependantFields)
+    {
+        return root.evaluate(dependantFields);
+    }
+
+    @Override
+    public String toString()
+    {
+        return expression;
+    }
+
+    /* --------------------------------
+     * Nodes
+     \ ------------------------------ */
+
+    private static abstract class Node
+    {
+        abstract double evaluate(Field[] inputs);
+    }
+
+    private static class Constant extends Node
+    {
+        private final double value;
+
+        Constant(double value) { this.value = value; }
+
+        @Override
+        double evaluate(Field[] inputs) { return value; }
+    }
+
+    private static class Input extends Node
+    {
+        private final int slot;
+
+        Input(int slot) { this.slot = slot; }
+
+        @Override
+        double evaluate(Field[] inputs) { return inputs[slot].getValue(); }
+    }
+
+    private static class Negate extends Node
+    {
+        private final Node operand;
+
+        Negate(Node operand) { this.operand = operand; }
+
+        @Override
+        double evaluate(Field[] inputs) { return -operand.evaluate(inputs); }
+    }
+
+    private static final int ADD = 0;
+    private static final int SUBTRACT = 1;
+    private static final int MULTIPLY = 2;
+    private static final int DIVIDE = 3;
+    private static final int LESS = 4;
+    private static final int LESS_EQUAL = 5;
+    private static final int GREATER = 6;
+    private static final int GREATER_EQUAL = 7;
+    private static final int EQUAL = 8;
+    private static final int NOT_EQUAL = 9;
+    private static final int MIN = 10;
+    private static final int MAX = 11;
+
+    private static class Binary extends Node
+    {
+        private final int operator;
+        private final Node left;
+        private final Node right;
+
+        Binary(int operator, Node left, Node right)
+        {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(Field[] inputs)
+        {
+            double a = left.evaluate(inputs);
+            double b = right.evaluate(inputs);
+            switch (operator) {
+                case ADD:           return a + b;
+                case SUBTRACT:      return a - b;
+                case MULTIPLY:      return a * b;
+                case DIVIDE:        return a / b;
+                case LESS:          return a < b ? 1 : 0;
+                case LESS_EQUAL:    return a <= b ? 1 : 0;
+                case GREATER:       return a > b ? 1 : 0;
+                case GREATER_EQUAL: return a >= b ? 1 : 0;
+                case EQUAL:         return a == b ? 1 : 0;
+                case NOT_EQUAL:     return a != b ? 1 : 0;
+                case MIN:           return Math.min(a, b);
+                default:            return Math.max(a, b);
+            }
+        }
+    }
+
+    private static class Conditional extends Node
+    {
+        private final Node condition;
+        private final Node then;
+        private final Node otherwise;
+
+        Conditional(Node condition, Node then, Node otherwise)
+        {
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+
+        @Override
+        double evaluate(Field[] inputs)
+        {
+            // only the branch taken is evaluated, so a filter in the other one keeps its state
+            return condition.evaluate(inputs) != 0 ? then.evaluate(inputs) : otherwise.evaluate(inputs);
+        }
+    }
+
+    private static class Abs extends Node
+    {
+        private final Node operand;
+
+        Abs(Node operand) { this.operand = operand; }
+
+        @Override
+        double evaluate(Field[] inputs) { return Math.abs(operand.evaluate(inputs)); }
+    }
+
+    private static class Round extends Node
+    {
+        private final Node operand;
+
+        Round(Node operand) { this.operand = operand; }
+
+        @Override
+        double evaluate(Field[] inputs) { return Math.round(operand.evaluate(inputs)); }
+    }
+
+    private static class LowPass extends Node
+    {
+        private final Node operand;
+        private final Node factor;
+        private double state = 0;
+
+        LowPass(Node operand, Node factor)
+        {
+            this.operand = operand;
+            this.factor = factor;
+        }
+
+        @Override
+        double evaluate(Field[] inputs)
+        {
+            double value = operand.evaluate(inputs);
+            if (!Double.isNaN(value)) {
+                double k = factor.evaluate(inputs);
+                state = state * (1 - k) + value * k;
+            }
+            return state;
+        }
+    }
+
+    /* --------------------------------
+     * Parser
+     \ ------------------------------ */
+
+    /**
+     * Recursive descent, lowest precedence first:
+     * conditional, comparison, sum, product, unary, primary
+     */
+    private static class Parser
+    {
+        private final String text;
+        private int position = 0;
+        final ArrayList<String> ids = new ArrayList<>();
+
+        Parser(String text)
+        {
+            this.text = text;
+        }
+
+        Node parse()
+        {
+            Node node = conditional();
+            skipSpaces();
+            if (position < text.length()) throw error("unexpected '" + text.charAt(position) + "'");
+            return node;
+        }
+
+        private Node conditional()
+        {
+            Node condition = comparison();
+            if (!accept("?")) return condition;
+            Node then = conditional();
+            expect(":");
+            return new Conditional(condition, then, conditional());
+        }
+
+        private Node comparison()
+        {
+            Node left = sum();
+            // the two character operators first
+            if (accept("<=")) return new Binary(LESS_EQUAL, left, sum());
+            if (accept(">=")) return new Binary(GREATER_EQUAL, left, sum());
+            if (accept("==")) return new Binary(EQUAL, left, sum());
+            if (accept("!=")) return new Binary(NOT_EQUAL, left, sum());
+            if (accept("<")) return new Binary(LESS, left, sum());
+            if (accept(">")) return new Binary(GREATER, left, sum());
+            return left;
+        }
+
+        private Node sum()
+        {
+            Node node = product();
+            while (true) {
+                if (accept("+")) node = new Binary(ADD, node, product());
+                else if (accept("-")) node = new Binary(SUBTRACT, node, product());
+                else return node;
+            }
+        }
+
+        private Node product()
+        {
+            Node node = unary();
+            while (true) {
+                if (accept("*")) node = new Binary(MULTIPLY, node, unary());
+                else if (accept("/")) node = new Binary(DIVIDE, node, unary());
+                else return node;
+            }
+        }
+
+        private Node unary()
+        {
+            if (accept("-")) return new Negate(unary());
+            if (accept("+")) return unary();
+            return primary();
+        }
+
+        private Node primary()
+        {
+            skipSpaces();
+            if (position >= text.length()) throw error("unexpected end");
+
+            if (accept("(")) {
+                Node node = conditional();
+                expect(")");
+                return node;
+            }
+
+            if (accept("[")) {
+                int end = text.indexOf(']', position);
+                if (end < 0) throw error("missing ']'");
+                String sid = text.substring(position, end).trim().toLowerCase();
+                position = end + 1;
+                int slot = ids.indexOf(sid);
+                if (slot < 0) {
+                    slot = ids.size();
+                    ids.add(sid);
+                }
+                return new Input(slot);
+            }
+
+            char c = text.charAt(position);
+            if (Character.isDigit(c) || c == '.') {
+                int start = position;
+                while (position < text.length() && (Character.isDigit(text.charAt(position)) || text.charAt(position) == '.'))
+                    position++;
+                // an exponent, e.g. 1e-3
+                if (position < text.length() && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+                    position++;
+                    if (position < text.length() && (text.charAt(position) == '-' || text.charAt(position) == '+')) position++;
+                    while (position < text.length() && Character.isDigit(text.charAt(position))) position++;
+                }
+                try {
+                    return new Constant(Double.parseDouble(text.substring(start, position)));
+                } catch (NumberFormatException e) {
+                    throw error("bad number '" + text.substring(start, position) + "'");
+                }
+            }
+
+            if (Character.isLetter(c)) {
+                int start = position;
+                while (position < text.length() && Character.isLetterOrDigit(text.charAt(position))) position++;
+                String name = text.substring(start, position).toLowerCase();
+                if (name.equals("nan")) return new Constant(Double.NaN);
+
+                expect("(");
+                Node first = conditional();
+                Node node;
+                switch (name) {
+                    case "abs":     node = new Abs(first); break;
+                    case "round":   node = new Round(first); break;
+                    case "min":     expect(","); node = new Binary(MIN, first, conditional()); break;
+                    case "max":     expect(","); node = new Binary(MAX, first, conditional()); break;
+                    case "lpf":     expect(","); node = new LowPass(first, conditional()); break;
+                    default:        throw error("unknown function '" + name + "'");
+                }
+                expect(")");
+                return node;
+            }
+
+            throw error("unexpected '" + c + "'");
+        }
+
+        private void skipSpaces()
+        {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) position++;
+        }
+
+        private boolean accept(String token)
+        {
+            skipSpaces();
+            if (!text.startsWith(token, position)) return false;
+            position += token.length();
+            return true;
+        }
+
+        private void expect(String token)
+        {
+            if (!accept(token)) throw error("'" + token + "' expected");
+        }
+
+        private IllegalArgumentException error(String message)
+        {
+            return new IllegalArgumentException(message + " at " + position + " in: " + text);
+        }
+    }
+}
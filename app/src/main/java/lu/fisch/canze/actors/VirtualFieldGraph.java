@@ -0,0 +1,102 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.actors;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import lu.fisch.canze.activities.MainActivity;
+
+/**
+ * The virtual fields, ordered so each one comes after the virtual fields it
+ * depends on. Updates of the real fields only mark the virtual fields
+ * depending on them as dirty, compute() then brings the dirty ones up to
+ * date in one go, in that order. A virtual field with several inputs is
+ * computed once instead of once per input, and never from half updated
+ * inputs; a virtual field computed by compute() marks those depending on it
+ * dirty, which come later in the same pass.
+ */
+class VirtualFieldGraph {
+
+    private final VirtualField[] order;
+
+    VirtualFieldGraph(ArrayList<Field> fields)
+    {
+        // the virtual fields and, for each one, the virtual fields it depends on
+        ArrayList<VirtualField> virtualFields = new ArrayList<>();
+        for (Field field : fields)
+            if (field instanceof VirtualField) virtualFields.add((VirtualField) field);
+
+        IdentityHashMap<VirtualField, Integer> pending = new IdentityHashMap<>();
+        IdentityHashMap<VirtualField, ArrayList<VirtualField>> dependants = new IdentityHashMap<>();
+        for (VirtualField virtualField : virtualFields) {
+            int inputs = 0;
+            for (Field input : virtualField.dependantFields) {
+                if (input instanceof VirtualField && virtualFields.contains(input)) {
+                    ArrayList<VirtualField> list = dependants.get(input);
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        dependants.put((VirtualField) input, list);
+                    }
+                    list.add(virtualField);
+                    inputs++;
+                }
+            }
+            pending.put(virtualField, inputs);
+        }
+
+        // topological order (Kahn): take the ones whose virtual inputs are all ordered already
+        ArrayList<VirtualField> sorted = new ArrayList<>(virtualFields.size());
+        for (VirtualField virtualField : virtualFields)
+            if (pending.get(virtualField) == 0) sorted.add(virtualField);
+        for (int i = 0; i < sorted.size(); i++) {
+            ArrayList<VirtualField> list = dependants.get(sorted.get(i));
+            if (list == null) continue;
+            for (VirtualField dependant : list) {
+                int inputs = pending.get(dependant) - 1;
+                pending.put(dependant, inputs);
+                if (inputs == 0) sorted.add(dependant);
+            }
+        }
+        // a cycle can't be ordered, compute its fields last rather than not at all
+        if (sorted.size() < virtualFields.size()) {
+            for (VirtualField virtualField : virtualFields) {
+                if (pending.get(virtualField) > 0) {
+                    MainActivity.debug("VirtualFieldGraph: " + virtualField.getSID() + " is part of a cycle");
+                    sorted.add(virtualField);
+                }
+            }
+        }
+
+        order = sorted.toArray(new VirtualField[sorted.size()]);
+    }
+
+    /**
+     * Compute the dirty virtual fields, in dependency order
+     */
+    synchronized void compute()
+    {
+        for (VirtualField virtualField : order) {
+            if (virtualField.isDirty()) virtualField.compute();
+        }
+    }
+}
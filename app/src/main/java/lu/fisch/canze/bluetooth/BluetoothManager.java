@@ -40,11 +40,12 @@ import java.util.UUID;
 
 import lu.fisch.canze.activities.MainActivity;
 import lu.fisch.canze.interfaces.BluetoothEvent;
+import lu.fisch.canze.interfaces.Transport;
 
 /**
  * Created by robertfisch on 03.09.2015.
  */
-public class BluetoothManager {
+public class BluetoothManager implements Transport {
 
     /* --------------------------------
      * Sigleton stuff
@@ -82,6 +83,12 @@ public class BluetoothManager {
     public static final int RETRIES_INFINITE = -1;
     private Thread retryThread = null;
 
+    /*
+     * Incoming data is read in bulk by a dedicated thread into a ring buffer.
+     * Readers block on a condition instead of polling the socket.
+     */
+    private final ReceiveBuffer receiveBuffer = new ReceiveBuffer();
+
     private String connectBluetoothAddress = null;
     private boolean connectSecure;
     private int connectRetries;
@@ -219,6 +226,7 @@ public class BluetoothManager {
                     try {
                         inputStream  = bluetoothSocket.getInputStream();
                         outputStream = bluetoothSocket.getOutputStream();
+                        startReader(inputStream);
                     }
                     catch (IOException e) {
                         inputStream  = null;
@@ -299,6 +307,7 @@ public class BluetoothManager {
             // close the socket
             if (bluetoothSocket != null)
                 bluetoothSocket.close();
+            debug("Receive buffer dropped " + receiveBuffer.getDroppedBytes() + " bytes");
 
             // execute attached event
             if(bluetoothEvent!=null) bluetoothEvent.onAfterDisconnect();
@@ -318,6 +327,7 @@ public class BluetoothManager {
      \ ------------------------------ */
 
     // write a message to the output stream
+    @Override
     public void write(String message) {
         if(bluetoothSocket.isConnected()) {
             byte[] msgBuffer = message.getBytes();
@@ -341,27 +351,62 @@ public class BluetoothManager {
         else MainActivity.debug("Write failed! Socket is closed ... M = "+message);
     }
 
+    /**
+     * Start the thread reading the input stream into the receive buffer. It
+     * stops by itself as soon as the socket is closed.
+     * @param stream    the input stream of the socket
+     */
+    private void startReader(final InputStream stream)
+    {
+        receiveBuffer.startReader(stream);
+    }
+
+    @Override
     public int read(byte[] buffer) throws IOException {
-        if(bluetoothSocket.isConnected())
-            return inputStream.read(buffer);
-        else
-            return 0;
+        return receiveBuffer.read(buffer);
     }
 
+    @Override
     public int read() throws IOException {
-        if(bluetoothSocket.isConnected())
-            return inputStream.read();
-        else
-            return -1;
+        return receiveBuffer.read();
     }
 
+    @Override
     public int available() throws IOException {
-        if(bluetoothSocket.isConnected())
-            return inputStream.available();
-        else
-            return 0;
+        return receiveBuffer.available();
+    }
+
+    @Override
+    public boolean waitForData(long deadline)
+    {
+        return receiveBuffer.waitForData(deadline);
+    }
+
+    @Override
+    public int readLine(StringBuilder line, long deadline, String terminators)
+    {
+        return receiveBuffer.readLine(line, deadline, terminators);
+    }
+
+    @Override
+    public String readLine(long deadline, String terminators)
+    {
+        return receiveBuffer.readLine(deadline, terminators);
+    }
+
+    @Override
+    public boolean waitFor(char stop, long deadline)
+    {
+        return receiveBuffer.waitFor(stop, deadline);
+    }
+
+    @Override
+    public boolean skip(char stop)
+    {
+        return receiveBuffer.skip(stop);
     }
 
+    @Override
     public boolean isConnected()
     {
         if(bluetoothSocket==null) return false;
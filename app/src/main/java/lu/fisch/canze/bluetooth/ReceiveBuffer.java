@@ -0,0 +1,283 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.bluetooth;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Ring buffer holding the incoming data of a transport. It is filled in bulk,
+ * either by a dedicated thread reading an input stream or by whoever calls
+ * put. Readers block on the monitor of the buffer instead of polling, which
+ * doesn't allocate anything per wait. It only depends on
+ * plain Java, so simulated transports can use it outside of Android.
+ */
+public class ReceiveBuffer {
+
+    private static final int RING_SIZE = 8192;
+    private final byte[] ring = new byte[RING_SIZE];
+    private int ringHead = 0;       // position of the next byte to be read
+    private int ringCount = 0;      // number of bytes in the buffer
+    private long droppedBytes = 0;  // bytes lost because nobody read them in time
+    private final Object ringLock = new Object();
+    private Thread readerThread = null;
+    private volatile boolean readerAlive = false;
+
+    /**
+     * Empty the buffer and accept data again
+     */
+    public void open()
+    {
+        synchronized (ringLock) {
+            ringHead = 0;
+            ringCount = 0;
+            readerAlive = true;
+        }
+    }
+
+    /**
+     * Stop accepting data. Anyone waiting is woken up, the data already in
+     * the buffer can still be read.
+     */
+    public void close()
+    {
+        synchronized (ringLock) {
+            readerAlive = false;
+            ringLock.notifyAll();
+        }
+    }
+
+    public boolean isOpen()
+    {
+        return readerAlive;
+    }
+
+    /**
+     * @return  the number of bytes lost because nobody read them in time
+     */
+    public long getDroppedBytes()
+    {
+        synchronized (ringLock) {
+            return droppedBytes;
+        }
+    }
+
+    /**
+     * Start the thread reading the input stream into the ring buffer. It
+     * stops by itself as soon as the socket is closed.
+     * @param stream    the input stream of the socket
+     */
+    public void startReader(final InputStream stream)
+    {
+        open();
+        readerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] chunk = new byte[1024];
+                try {
+                    while (true) {
+                        int length = stream.read(chunk);
+                        if (length < 0) break;
+                        if (length > 0) put(chunk, length);
+                    }
+                } catch (IOException e) {
+                    // the socket has been closed
+                } finally {
+                    // wake up anyone still waiting
+                    close();
+                }
+            }
+        });
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * Append data, overwriting the oldest data if the buffer is full
+     * @param chunk     the data
+     * @param length    the number of bytes to take from chunk
+     */
+    public void put(byte[] chunk, int length)
+    {
+        synchronized (ringLock) {
+            int offset = 0;
+            // if the chunk does not fit, the oldest data gets overwritten
+            if (length > RING_SIZE) {
+                offset = length - RING_SIZE;
+                droppedBytes += offset;
+                length = RING_SIZE;
+            }
+            int overflow = ringCount + length - RING_SIZE;
+            if (overflow > 0) {
+                ringHead = (ringHead + overflow) % RING_SIZE;
+                ringCount -= overflow;
+                droppedBytes += overflow;
+            }
+            int tail = (ringHead + ringCount) % RING_SIZE;
+            int first = Math.min(length, RING_SIZE - tail);
+            System.arraycopy(chunk, offset, ring, tail, first);
+            System.arraycopy(chunk, offset + first, ring, 0, length - first);
+            ringCount += length;
+            ringLock.notifyAll();
+        }
+    }
+
+    // must be called with the lock held and data available
+    private int take()
+    {
+        int data = ring[ringHead] & 0xFF;
+        ringHead = (ringHead + 1) % RING_SIZE;
+        ringCount--;
+        return data;
+    }
+
+    // must be called with the lock held
+    private boolean awaitData(long deadline)
+    {
+        try {
+            while (ringCount == 0) {
+                long millis = deadline - System.currentTimeMillis();
+                if (!readerAlive || millis <= 0) return false;
+                ringLock.wait(millis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    public int read(byte[] buffer) throws IOException {
+        synchronized (ringLock) {
+            int length = Math.min(buffer.length, ringCount);
+            for (int i = 0; i < length; i++)
+                buffer[i] = (byte) take();
+            return length;
+        }
+    }
+
+    /**
+     * Read one byte, blocking until there is one
+     * @return  the byte, or -1 if the connection is closed
+     */
+    public int read() throws IOException {
+        synchronized (ringLock) {
+            boolean interrupted = false;
+            while (ringCount == 0 && readerAlive) {
+                try {
+                    ringLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            return ringCount == 0 ? -1 : take();
+        }
+    }
+
+    public int available() throws IOException {
+        synchronized (ringLock) {
+            return ringCount;
+        }
+    }
+
+    /**
+     * Wait until some data is available
+     * @param deadline  the moment (in ms) to give up
+     * @return          true if data is available
+     */
+    public boolean waitForData(long deadline)
+    {
+        synchronized (ringLock) {
+            return awaitData(deadline);
+        }
+    }
+
+    /**
+     * Read characters into the given buffer up to and including the first
+     * terminator, blocking until it arrives or the deadline has passed. The
+     * characters read so far stay in the buffer in both cases.
+     * @param line          the buffer to append the characters to
+     * @param deadline      the moment (in ms) to give up
+     * @param terminators   the characters ending a line
+     * @return              the terminator found, or -1 on timeout
+     */
+    public int readLine(StringBuilder line, long deadline, String terminators)
+    {
+        synchronized (ringLock) {
+            while (true) {
+                while (ringCount > 0) {
+                    char ch = (char) take();
+                    line.append(ch);
+                    if (terminators.indexOf(ch) >= 0) return ch;
+                }
+                if (!awaitData(deadline)) return -1;
+            }
+        }
+    }
+
+    /**
+     * Read a line, including its terminator
+     * @param deadline      the moment (in ms) to give up
+     * @param terminators   the characters ending a line
+     * @return              the line, or null on timeout
+     */
+    public String readLine(long deadline, String terminators)
+    {
+        StringBuilder line = new StringBuilder();
+        if (readLine(line, deadline, terminators) < 0) return null;
+        return line.toString();
+    }
+
+    /**
+     * Discard everything up to and including the given character
+     * @param stop      the character to wait for
+     * @param deadline  the moment (in ms) to give up
+     * @return          true if the character has been found
+     */
+    public boolean waitFor(char stop, long deadline)
+    {
+        synchronized (ringLock) {
+            while (true) {
+                while (ringCount > 0) {
+                    if (take() == stop) return true;
+                }
+                if (!awaitData(deadline)) return false;
+            }
+        }
+    }
+
+    /**
+     * Discard the available data, without waiting for more
+     * @param stop  stop after this character, '\0' to discard everything
+     * @return      true if the stop character has been found
+     */
+    public boolean skip(char stop)
+    {
+        synchronized (ringLock) {
+            while (ringCount > 0) {
+                if (take() == stop && stop != '\0') return true;
+            }
+            return false;
+        }
+    }
+}
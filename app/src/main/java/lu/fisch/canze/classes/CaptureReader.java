@@ -0,0 +1,210 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.classes;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import lu.fisch.canze.actors.Field;
+import lu.fisch.canze.actors.Message;
+
+/**
+ * Reads back a capture file written by CaptureWriter, one message at a time.
+ *
+ * The file starts with the magic "CZCP", a version byte and the moment (ms,
+ * big endian long) the capture has been started. Then come the records,
+ * each one being its length (unsigned short, not counting itself), its type
+ * and its content:
+ * - a response id record holds the index of the response id (varint) and
+ *   its UTF-8 text. It comes before the first message using the index.
+ * - a message record holds the time since the previous message (ms, varint),
+ *   the frame id (varint), the index of the response id (varint) and the
+ *   payload bytes up to the end of the record.
+ * Varints are unsigned LEB128. Unknown record types are skipped.
+ */
+public class CaptureReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ArrayList<String> responseIds = new ArrayList<>();
+    private final long startMoment;
+    private boolean endOfFile = false;
+
+    // the current message
+    private long moment;
+    private int frameId;
+    private String responseId;
+    private final byte[] payload = new byte[CaptureWriter.MAX_RECORD];
+    private int length;
+
+    public CaptureReader(File file) throws IOException
+    {
+        channel = new FileInputStream(file).getChannel();
+        buffer.limit(0);
+        if (!fill(CaptureWriter.HEADER_SIZE)) {
+            close();
+            throw new IOException("Not a capture file: " + file);
+        }
+        for (byte b : CaptureWriter.MAGIC) {
+            if (buffer.get() != b) {
+                close();
+                throw new IOException("Not a capture file: " + file);
+            }
+        }
+        int version = buffer.get() & 0xFF;
+        if (version > CaptureWriter.VERSION) {
+            close();
+            throw new IOException("Unsupported capture version " + version + ": " + file);
+        }
+        startMoment = buffer.getLong();
+        moment = startMoment;
+    }
+
+    /**
+     * @return  the moment (ms) the capture has been started
+     */
+    public long getStartMoment()
+    {
+        return startMoment;
+    }
+
+    /**
+     * Move on to the next message
+     * @return  false at the end of the capture
+     */
+    public boolean next() throws IOException
+    {
+        while (fill(2)) {
+            int recordLength = buffer.getShort() & 0xFFFF;
+            // a truncated last record, e.g. after a crash
+            if (recordLength == 0 || !fill(recordLength)) return false;
+            int end = buffer.position() + recordLength;
+            byte type = buffer.get();
+            if (type == CaptureWriter.RECORD_RESPONSE_ID) {
+                int index = getVarint();
+                String text = new String(buffer.array(), buffer.position(), end - buffer.position(), CaptureWriter.UTF8);
+                while (responseIds.size() <= index) responseIds.add("");
+                responseIds.set(index, text);
+            } else if (type == CaptureWriter.RECORD_MESSAGE) {
+                moment += getVarint() & 0xFFFFFFFFL;
+                frameId = getVarint();
+                int index = getVarint();
+                responseId = index < responseIds.size() ? responseIds.get(index) : "";
+                length = end - buffer.position();
+                buffer.get(payload, 0, length);
+                return true;
+            }
+            buffer.position(end);
+        }
+        return false;
+    }
+
+    /**
+     * @return  the moment (ms) the current message has been received
+     */
+    public long getMoment()
+    {
+        return moment;
+    }
+
+    public int getFrameId()
+    {
+        return frameId;
+    }
+
+    /**
+     * @return  the ISO-TP response id of the current message, empty for a free frame
+     */
+    public String getResponseId()
+    {
+        return responseId;
+    }
+
+    /**
+     * @return  the payload buffer of the current message, it is reused by next().
+     *          Only the first getLength() bytes are valid.
+     */
+    public byte[] getPayload()
+    {
+        return payload;
+    }
+
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * @param field the field the current message is the response for
+     * @return      the current message, ready for Fields.onMessageCompleteEvent
+     */
+    public Message getMessage(Field field)
+    {
+        return new Message(field, payload, length);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /* ****************************
+     * Internals
+     * ****************************/
+
+    // make sure the given number of bytes can be read from the buffer
+    private boolean fill(int size) throws IOException
+    {
+        if (buffer.remaining() >= size) return true;
+        if (endOfFile) return false;
+        buffer.compact();
+        while (buffer.position() < size) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= size;
+    }
+
+    private int getVarint()
+    {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0 && shift < 35);
+        return value;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.classes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+import lu.fisch.canze.actors.Field;
+import lu.fisch.canze.actors.Message;
+
+/**
+ * Appends the raw responses of the device to a binary capture file, so a
+ * session can be decoded again later, e.g. after the field definitions have
+ * changed. The format is described in CaptureReader.
+ *
+ * Records are assembled in a large direct buffer that is only handed to the
+ * file channel once it is full (or old), so capturing a message only costs a
+ * few puts on the poller thread.
+ */
+public class CaptureWriter {
+
+    static final byte[] MAGIC = {'C', 'Z', 'C', 'P'};
+    static final int VERSION = 1;
+    // magic, version, start moment
+    static final int HEADER_SIZE = 4 + 1 + 8;
+
+    static final byte RECORD_RESPONSE_ID = 1;
+    static final byte RECORD_MESSAGE = 2;
+    // the record length is an unsigned short
+    static final int MAX_RECORD = 0xFFFF;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    // the buffer is written at least this often, so a crash doesn't lose much
+    private static final long FLUSH_AGE = 10 * 1000;  // ms
+    // type and three varints
+    private static final int MAX_MESSAGE_HEADER = 1 + 3 * 5;
+
+    /* ****************************
+     * Singleton stuff
+     * ****************************/
+
+    private static final CaptureWriter instance = new CaptureWriter();
+
+    private CaptureWriter() {}
+
+    public static CaptureWriter getInstance() {
+        return instance;
+    }
+
+    /* ****************************
+     * Capture stuff
+     * ****************************/
+
+    private FileChannel channel = null;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // the index of each response id, the string itself is only written once
+    private final HashMap<String, Integer> responseIds = new HashMap<>();
+    private long lastMoment = 0;
+    private long lastFlush = 0;
+
+    private long records = 0;
+    private long bytesWritten = 0;
+
+    /**
+     * Start a new capture file, an open capture is closed first
+     * @param file  the file to write to, it is overwritten
+     * @return      true if the capture is open
+     */
+    public synchronized boolean open(File file)
+    {
+        close();
+        try {
+            File dir = file.getParentFile();
+            if (dir != null && !dir.exists()) dir.mkdirs();
+            channel = new FileOutputStream(file, false).getChannel();
+        } catch (IOException e) {
+            e.printStackTrace();
+            channel = null;
+            return false;
+        }
+
+        buffer.clear();
+        responseIds.clear();
+        lastMoment = System.currentTimeMillis();
+        lastFlush = lastMoment;
+        records = 0;
+        bytesWritten = 0;
+
+        buffer.put(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putLong(lastMoment);
+        return true;
+    }
+
+    public synchronized boolean isOpen()
+    {
+        return channel != null;
+    }
+
+    /**
+     * Capture a response of the device
+     * @param message   the message, as it is handed to the fields
+     */
+    public synchronized void write(Message message)
+    {
+        if (channel == null || message == null) return;
+        Field field = message.getField();
+        write(System.currentTimeMillis(), field.getId(), field.isIsoTp() ? field.getResponseId() : "",
+                message.getBytes(), message.getByteLength());
+    }
+
+    /**
+     * Capture a response
+     * @param moment        when it has been received (ms)
+     * @param frameId       the id of the frame
+     * @param responseId    the ISO-TP response id, empty for a free frame
+     * @param payload       the buffer holding the payload
+     * @param length        the number of payload bytes
+     */
+    public synchronized void write(long moment, int frameId, String responseId, byte[] payload, int length)
+    {
+        if (channel == null || length + MAX_MESSAGE_HEADER > MAX_RECORD) return;
+        if (responseId == null) responseId = "";
+
+        Integer index = responseIds.get(responseId);
+        if (index == null) {
+            index = responseIds.size();
+            responseIds.put(responseId, index);
+            byte[] text = responseId.getBytes(UTF8);
+            if (!reserve(2 + 1 + 5 + text.length)) return;
+            int start = beginRecord(RECORD_RESPONSE_ID);
+            putVarint(index);
+            buffer.put(text);
+            endRecord(start);
+        }
+
+        if (!reserve(2 + MAX_MESSAGE_HEADER + length)) return;
+        int start = beginRecord(RECORD_MESSAGE);
+        // the clock may be set back, the moments of a capture never are
+        putVarint((int) Math.min(Integer.MAX_VALUE, Math.max(0, moment - lastMoment)));
+        putVarint(frameId);
+        putVarint(index);
+        buffer.put(payload, 0, length);
+        endRecord(start);
+        if (moment > lastMoment) lastMoment = moment;
+        records++;
+
+        if (moment - lastFlush >= FLUSH_AGE) flush();
+    }
+
+    /**
+     * Hand the buffered records to the file
+     */
+    public synchronized void flush()
+    {
+        if (channel == null) return;
+        lastFlush = System.currentTimeMillis();
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) bytesWritten += channel.write(buffer);
+            buffer.clear();
+        } catch (IOException e) {
+            e.printStackTrace();
+            // give up rather than failing on every message
+            buffer.clear();
+            closeChannel();
+        }
+    }
+
+    public synchronized void close()
+    {
+        if (channel == null) return;
+        flush();
+        closeChannel();
+    }
+
+    /**
+     * @return  the number of messages captured since the capture has been opened
+     */
+    public synchronized long getRecords()
+    {
+        return records;
+    }
+
+    /**
+     * @return  the number of bytes written to the file so far
+     */
+    public synchronized long getBytesWritten()
+    {
+        return bytesWritten;
+    }
+
+    /* ****************************
+     * Internals
+     * ****************************/
+
+    private void closeChannel()
+    {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    // make room for a record of at most the given size, false if the capture got closed meanwhile
+    private boolean reserve(int size)
+    {
+        if (buffer.remaining() < size) flush();
+        return channel != null;
+    }
+
+    // a record is its length (unsigned short), its type and its content
+    private int beginRecord(byte type)
+    {
+        int start = buffer.position();
+        buffer.putShort((short) 0);
+        buffer.put(type);
+        return start;
+    }
+
+    private void endRecord(int start)
+    {
+        buffer.putShort(start, (short) (buffer.position() - start - 2));
+    }
+
+    // unsigned LEB128
+    private void putVarint(int value)
+    {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
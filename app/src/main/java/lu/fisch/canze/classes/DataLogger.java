@@ -4,10 +4,7 @@ import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -15,6 +12,7 @@ import java.util.Date;
 
 import lu.fisch.canze.activities.MainActivity;
 import lu.fisch.canze.actors.Field;
+import lu.fisch.canze.actors.FieldSnapshot;
 import lu.fisch.canze.interfaces.FieldListener;
 
 import static lu.fisch.canze.activities.MainActivity.debug;
@@ -80,7 +78,9 @@ public class DataLogger  implements FieldListener {
     private ArrayList<Field> subscribedFields;
     // -------- Data Definitions copied from Driving Activity -- end ---
 
-    private File logFile = null;
+    // the lines are written by the log sink, not on the thread logging them
+    // volatile, log() reads it while another thread may start or stop the log
+    private volatile LogSink.Target logTarget = null;
     private boolean activated = false;
 
     private long z = 2;
@@ -115,7 +115,7 @@ public class DataLogger  implements FieldListener {
 
     public boolean isCreated()
     {
-        return (logFile!=null);
+        return (logTarget!=null);
     }
 
     public boolean activate ( boolean state ) {
@@ -154,33 +154,10 @@ public class DataLogger  implements FieldListener {
             }
             debug("DataLogger: file_path:" + file_path);
 
-            // SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
-            String exportdataFileName = file_path + "data-" + sdf.format(Calendar.getInstance().getTime()) + ".log";
-
-            logFile = new File(exportdataFileName);
-            if (!logFile.exists()) {
-                try {
-                    logFile.createNewFile();
-                    debug("DataLogger: NewFile:" +  exportdataFileName );
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-
-            try {
-                //BufferedWriter for performance, true to set append to file flag
-                BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(logFile, true));
-                // set global static BufferedWriter dataexportStream later
-                //if (true) {
-                //    bufferedWriter.append("this is just a test if stream is writeable");
-                //    bufferedWriter.newLine();
-                //    bufferedWriter.close();
-                //}
-                bufferedWriter.close();
-                result = true;
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            // the file itself is opened by the log sink with the first line
+            if (logTarget != null) logTarget.close();
+            logTarget = LogSink.getInstance().createTarget(dir, "data-", null, null, null);
+            result = true;
         }
         return result;
     }
@@ -244,14 +221,8 @@ public class DataLogger  implements FieldListener {
         if(!isCreated()) createNewLog();
         debug("DataLogger - log: " + text);
 
-        try {
-            BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(logFile, true));
-            bufferedWriter.append(text+ System.getProperty("line.separator"));
-            bufferedWriter.close();
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
+        LogSink.Target target = logTarget;
+        if(target!=null) target.log(text);
     }
 
     public boolean start() {
@@ -271,7 +242,8 @@ public class DataLogger  implements FieldListener {
         // flush and close logfile
         // stop timer
         debug("DataLogger: stop");
-        logFile = null;
+        if (logTarget != null) logTarget.close();
+        logTarget = null;
         handler.removeCallbacks(runnable);
 
         // free up the listeners again
@@ -281,7 +253,7 @@ public class DataLogger  implements FieldListener {
             }
             subscribedFields.clear();
         }
-        debug("DataLogger: stop - and logFile = null");
+        debug("DataLogger: stop - and logTarget = null");
         return result;
     }
 
@@ -334,7 +306,9 @@ public class DataLogger  implements FieldListener {
     // getting updated by the corresponding reader class.
     @Override
     public void onFieldUpdateEvent(final Field field) {
-                String fieldId = field.getSID();
+                // the value of this update, the field may change meanwhile
+                FieldSnapshot snapshot = field.getSnapshot();
+                String fieldId = snapshot.getSid();
                 double fieldValue;
 
         // Long tsLong = System.currentTimeMillis()/1000;
@@ -361,14 +335,14 @@ public class DataLogger  implements FieldListener {
                         // pb.setProgress((int) field.getValue());
                         break;
                     case SID_EVC_Odometer:
-                        odo = (int ) field.getValue();
+                        odo = (int ) snapshot.getValue();
                         //odo = (int) Utils.kmOrMiles(field.getValue());
                         var_Odometer = "" + odo;
                         break;
                     case SID_RealSpeed:
 //                  case SID_EVC_RealSpeed:
                         //realSpeed = (Math.round(Utils.kmOrMiles(field.getValue()) * 10.0) / 10.0);
-                        realSpeed = (Math.round(field.getValue() * 10.0) / 10.0);
+                        realSpeed = (Math.round(snapshot.getValue() * 10.0) / 10.0);
                         var_realSpeed = "" + realSpeed;
                         break;
                     //case SID_PEB_Torque:
@@ -376,16 +350,16 @@ public class DataLogger  implements FieldListener {
                     //    break;
                     case SID_EVC_TractionBatteryVoltage: // DC volts
                         // save DC voltage for DC power purposes
-                        dcVolt = field.getValue();
+                        dcVolt = snapshot.getValue();
                         var_dcVolt = field.getPrintValue();
                         break;
                     case SID_EVC_TractionBatteryCurrent: // DC amps
                         // calculate DC power
-                        dcPwr = Math.round(dcVolt * field.getValue() / 100.0) / 10.0;
+                        dcPwr = Math.round(dcVolt * snapshot.getValue() / 100.0) / 10.0;
                         var_dcPwr = field.getPrintValue();
                         break;
                     case SID_Consumption:
-                        dcPwr = field.getValue();
+                        dcPwr = snapshot.getValue();
                         if (realSpeed > 5) {
                             var_Consumption = "" + (Math.round(1000.0 * dcPwr / realSpeed) / 10.0);
                         } else {
@@ -394,7 +368,7 @@ public class DataLogger  implements FieldListener {
                         break;
                     case SID_RangeEstimate:
                         //int rangeInBat = (int) Utils.kmOrMiles(field.getValue());
-                        var_rangeInBat = "" + (int) field.getValue();
+                        var_rangeInBat = "" + (int) snapshot.getValue();
                         break;
                     case SID_DriverBrakeWheel_Torque_Request:
                         // driverBrakeWheel_Torque_Request = field.getValue();
@@ -2,12 +2,7 @@ package lu.fisch.canze.classes;
 
 import android.os.Environment;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 
 import static lu.fisch.canze.activities.MainActivity.debug;
 
@@ -33,15 +28,17 @@ public class DebugLogger {
      * Datalogger stuff
      * ****************************/
 
-    private File logFile = null;
+    // the lines are written by the log sink, which also adds the timestamps
+    // volatile, log() reads it without taking the lock of createNewLog
+    private volatile LogSink.Target logTarget = null;
 
     private boolean isCreated()
     {
-        return (logFile!=null);
+        return (logTarget!=null);
     }
 
-    private boolean createNewLog() {
-        boolean result = false;
+    private synchronized boolean createNewLog() {
+        if (logTarget != null) return true;
 
         //debug(this.getClass().getSimpleName()+": create new debug logfile");
 
@@ -50,62 +47,18 @@ public class DebugLogger {
 
         //debug(this.getClass().getSimpleName()+": file_path:" + file_path);
 
-        File dir = new File(file_path);
-        if (!dir.exists()) {
-            dir.mkdirs();
-            //debug(this.getClass().getSimpleName()+": SDcard dir CanZE created");
-        }
-
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
-        String exportdataFileName = file_path + "debug-" + sdf.format(Calendar.getInstance().getTime()) + ".log";
-
-        logFile = new File(exportdataFileName);
-        if (!logFile.exists()) {
-            try {
-                logFile.createNewFile();
-            }
-            catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-
-        try {
-            //BufferedWriter for performance, true to set append to file flag
-            BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(logFile, true));
-            // set global static BufferedWriter dataexportStream later
-            //if (true) {
-            //    bufferedWriter.append("this is just a test if stream is writeable");
-            //    bufferedWriter.newLine();
-            //    bufferedWriter.close();
-            //}
-            bufferedWriter.close();
-            result = true;
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
-        return result;
+        logTarget = LogSink.getInstance().createTarget(new File(file_path), "debug-", null, "yyyy-MM-dd HH:mm:ss.SSS", ": ");
+        return true;
     }
 
     /**
-     * Appends a line of text to the log file
+     * Appends a line of text to the log file, preceded by the moment it is logged
      * @param text  the text line. A CR will be added automatically
      */
     public void log(String text)
     {
-        boolean goon = true;
-        if(logFile==null) goon=createNewLog();
-
-        if(goon) {
-            try {
-                BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(logFile, true));
-                bufferedWriter.append(text + "\n");
-                bufferedWriter.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
+        if(logTarget==null) createNewLog();
+        logTarget.log(text);
     }
 
 }
-
@@ -2,12 +2,7 @@ package lu.fisch.canze.classes;
 
 import android.os.Environment;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 
 import static lu.fisch.canze.activities.MainActivity.debug;
 
@@ -33,17 +28,17 @@ public class FieldLogger {
      * Datalogger stuff
      * ****************************/
 
-    private File logFile = null;
-
-    private SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
+    // the lines are written by the log sink, not on the thread logging them
+    // volatile, log() reads it without taking the lock of createNewLog
+    private volatile LogSink.Target logTarget = null;
 
     private boolean isCreated()
     {
-        return (logFile!=null);
+        return (logTarget!=null);
     }
 
-    private boolean createNewLog() {
-        boolean result = false;
+    private synchronized boolean createNewLog() {
+        if (logTarget != null) return true;
 
         //debug(this.getClass().getSimpleName()+": create new field logfile");
 
@@ -52,42 +47,8 @@ public class FieldLogger {
 
         //debug(this.getClass().getSimpleName()+": file_path:" + file_path);
 
-        File dir = new File(file_path);
-        if (!dir.exists()) {
-            dir.mkdirs();
-            //debug(this.getClass().getSimpleName()+": SDcard dir CanZE created");
-        }
-
-        String exportdataFileName = file_path + "field-" + sdf.format(Calendar.getInstance().getTime()) + ".log";
-
-        logFile = new File(exportdataFileName);
-        if (!logFile.exists()) {
-            try {
-                logFile.createNewFile();
-            }
-            catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-
-        try {
-            //BufferedWriter for performance, true to set append to file flag
-            BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(logFile, true));
-            // set global static BufferedWriter dataexportStream later
-            //if (true) {
-            //    bufferedWriter.append("this is just a test if stream is writeable");
-            //    bufferedWriter.newLine();
-            //    bufferedWriter.close();
-            //}
-            bufferedWriter.close();
-            result = true;
-
-            log("time,SID,value");
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
-        return result;
+        logTarget = LogSink.getInstance().createTarget(new File(file_path), "field-", "time,SID,value", "yyyy-MM-dd-HH-mm-ss", ",");
+        return true;
     }
 
     /**
@@ -96,17 +57,8 @@ public class FieldLogger {
      */
     public void log(String text)
     {
-        if(logFile==null) createNewLog();
-
-        try {
-            BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(logFile, true));
-            bufferedWriter.append(sdf.format(Calendar.getInstance().getTime())+","+text+"\n");
-            bufferedWriter.close();
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
+        if(logTarget==null) createNewLog();
+        logTarget.log(text);
     }
 
 }
-
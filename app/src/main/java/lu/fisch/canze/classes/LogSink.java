@@ -0,0 +1,301 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.classes;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The one asynchronous sink all log files are written through. Logging a
+ * line only puts it on a lock-free queue, the files are opened, written,
+ * flushed and rotated by a single background thread, so logging doesn't
+ * change the timing of the thread doing it.
+ *
+ * If the writer can't keep up, lines beyond MAX_QUEUED are dropped rather
+ * than blocking the caller. They are counted, as are the lines written.
+ */
+public class LogSink {
+
+    private static final int MAX_QUEUED = 10000;
+    // wake the writer early once this many lines are waiting
+    private static final int WAKE_QUEUED = 500;
+    private static final long FLUSH_INTERVAL = 1000;  // ms
+    private static final long MAX_FILE_SIZE = 8 * 1024 * 1024;  // chars
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /* ****************************
+     * Singleton stuff
+     * ****************************/
+
+    private static final LogSink instance = new LogSink();
+
+    private LogSink() {}
+
+    public static LogSink getInstance() {
+        return instance;
+    }
+
+    /* ****************************
+     * Sink stuff
+     * ****************************/
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    private volatile Thread writerThread = null;
+    // the targets with an open file, only touched by the writer thread
+    private final HashSet<Target> openTargets = new HashSet<>();
+
+    /**
+     * Create a log. Its file is only opened with the first line.
+     * @param directory         the directory to put the files in
+     * @param prefix            the start of the file names, followed by the moment the file is started
+     * @param header            the first line of each file, or null
+     * @param timestampPattern  the SimpleDateFormat pattern each line starts with, or null for none
+     * @param separator         what goes between the timestamp and the text
+     * @return                  the log
+     */
+    public Target createTarget(File directory, String prefix, String header, String timestampPattern, String separator)
+    {
+        startWriter();
+        return new Target(directory, prefix, header, timestampPattern, separator);
+    }
+
+    /**
+     * @return  the number of lines dropped because the queue was full
+     */
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+
+    /**
+     * @return  the number of lines written
+     */
+    public long getWritten()
+    {
+        return written.get();
+    }
+
+    /**
+     * @return  the number of lines waiting to be written
+     */
+    public int getQueued()
+    {
+        return queued.get();
+    }
+
+    private void enqueue(Entry entry)
+    {
+        // a close is never dropped, or the file would stay open
+        if (entry.text != null && queued.get() >= MAX_QUEUED) {
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.offer(entry);
+        if (queued.incrementAndGet() % WAKE_QUEUED == 0 || entry.text == null) LockSupport.unpark(writerThread);
+    }
+
+    private synchronized void startWriter()
+    {
+        if (writerThread != null) return;
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long lastFlush = System.currentTimeMillis();
+                while (true) {
+                    Entry entry;
+                    while ((entry = queue.poll()) != null) {
+                        queued.decrementAndGet();
+                        entry.target.write(entry);
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastFlush >= FLUSH_INTERVAL) {
+                        // a target failing to flush closes its file and leaves the set, so walk a copy
+                        for (Target target : openTargets.toArray(new Target[openTargets.size()])) target.flush();
+                        lastFlush = now;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL));
+                }
+            }
+        });
+        writerThread.setName("LogSink writer");
+        writerThread.setDaemon(true);
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        writerThread.start();
+    }
+
+    /**
+     * A line waiting to be written, a null text closes the target
+     */
+    private static class Entry
+    {
+        final Target target;
+        final long moment;
+        final String text;
+
+        Entry(Target target, long moment, String text)
+        {
+            this.target = target;
+            this.moment = moment;
+            this.text = text;
+        }
+    }
+
+    /**
+     * One log, written to a series of files. Everything but log() and close()
+     * runs on the writer thread.
+     */
+    public class Target
+    {
+        private final File directory;
+        private final String prefix;
+        private final String header;
+        private final SimpleDateFormat timestampFormat;
+        private final String separator;
+        private final SimpleDateFormat fileFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
+        private final Date date = new Date();
+
+        private Writer writer = null;
+        private long size = 0;
+        private volatile boolean closed = false;
+
+        private Target(File directory, String prefix, String header, String timestampPattern, String separator)
+        {
+            this.directory = directory;
+            this.prefix = prefix;
+            this.header = header;
+            this.timestampFormat = timestampPattern == null ? null : new SimpleDateFormat(timestampPattern);
+            this.separator = separator == null ? "" : separator;
+        }
+
+        /**
+         * Append a line to the log, a line feed is added automatically
+         * @param text  the text of the line
+         */
+        public void log(String text)
+        {
+            if (!closed && text != null) enqueue(new Entry(this, System.currentTimeMillis(), text));
+        }
+
+        /**
+         * Close the file once the lines logged so far have been written
+         */
+        public void close()
+        {
+            if (closed) return;
+            closed = true;
+            enqueue(new Entry(this, System.currentTimeMillis(), null));
+        }
+
+        private void write(Entry entry)
+        {
+            if (entry.text == null) {
+                closeFile();
+                return;
+            }
+            if (writer == null || size >= MAX_FILE_SIZE) {
+                closeFile();
+                if (!openFile(entry.moment)) return;
+            }
+            try {
+                if (timestampFormat != null) {
+                    date.setTime(entry.moment);
+                    String timestamp = timestampFormat.format(date);
+                    writer.write(timestamp);
+                    writer.write(separator);
+                    size += timestamp.length() + separator.length();
+                }
+                writer.write(entry.text);
+                writer.write('\n');
+                size += entry.text.length() + 1;
+                written.incrementAndGet();
+            } catch (IOException e) {
+                e.printStackTrace();
+                closeFile();
+            }
+        }
+
+        private boolean openFile(long moment)
+        {
+            if (!directory.exists()) directory.mkdirs();
+            date.setTime(moment);
+            String name = prefix + fileFormat.format(date);
+            // a file started within the same second as the last one gets a number
+            File file = new File(directory, name + ".log");
+            for (int i = 1; file.exists(); i++) file = new File(directory, name + "-" + i + ".log");
+
+            try {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"), BUFFER_SIZE);
+                size = 0;
+                openTargets.add(this);
+                if (header != null) {
+                    writer.write(header);
+                    writer.write('\n');
+                    size += header.length() + 1;
+                }
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                writer = null;
+                return false;
+            }
+        }
+
+        private void flush()
+        {
+            if (writer == null) return;
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+                closeFile();
+            }
+        }
+
+        private void closeFile()
+        {
+            if (writer == null) return;
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writer = null;
+            openTargets.remove(this);
+        }
+    }
+}
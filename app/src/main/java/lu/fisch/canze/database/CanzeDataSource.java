@@ -26,19 +26,45 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import lu.fisch.canze.activities.MainActivity;
 import lu.fisch.canze.actors.Field;
+import lu.fisch.canze.actors.FieldSnapshot;
 import lu.fisch.canze.classes.TimePoint;
 import lu.fisch.canze.interfaces.FieldListener;
 
 public class CanzeDataSource implements FieldListener
 {
-    //private static long LIMIT = 24*60*60*1000;  // 24 h
-    private static long LIMIT = 60*60*1000;  // 1 h
+    /*
+     * Samples are not written on the poller thread but queued up and written
+     * by a background thread, one transaction per batch. A batch is written
+     * as soon as it is full or its oldest sample has waited long enough.
+     */
+    private static final int BATCH_SIZE = 256;
+    private static final long BATCH_AGE = 1000;  // ms
+    // how long a range read waits for the writer to write what is queued
+    private static final long READ_FLUSH_TIMEOUT = 500;  // ms
+
+    /*
+     * While being written, the samples are also aggregated into buckets of
+     * 10 s, 1 min and 15 min (min/max/avg/last). Each tier is kept for
+     * longer than the one before, so history beyond the retention of the
+     * raw samples can still be plotted at a constant number of rows.
+     */
+    public static final long[] ROLLUP_TIERS = {10*1000, 60*1000, 15*60*1000};  // ms
+    public static final int TIER_10S = 0;
+    public static final int TIER_1MIN = 1;
+    public static final int TIER_15MIN = 2;
 
     /*
      * Singleton stuff
@@ -60,113 +86,776 @@ public class CanzeDataSource implements FieldListener
     private CanzeDataSource(Context context)
     {
       dbHelper = new CanzeOpenHelper(context);
+      retentionManager = new RetentionManager(this);
     }
 
     // Database fields
     private SQLiteDatabase database;
     private CanzeOpenHelper dbHelper;
 
+    // the write-behind queue: samples are added to pending, the writer swaps it with writing
+    private SampleBuffer pending = new SampleBuffer();
+    private SampleBuffer writing = new SampleBuffer();
+    private long pendingSince = 0;
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition batchReady = queueLock.newCondition();
+    // a range read wants the queue written now
+    private boolean flushRequested = false;
+    // batches taken from the queue and written, so a reader can wait for its batch
+    private long batchesTaken = 0;
+    private long batchesWritten = 0;
+    private final Condition batchWritten = queueLock.newCondition();
+    // only one batch is written at a time
+    private final Object writeLock = new Object();
+    private Thread writerThread = null;
+    private volatile boolean writerActive = false;
+
+    // deletes the samples that are too old
+    private final RetentionManager retentionManager;
+
+    // the id of each sid in the series table
+    private final HashMap<String, Long> seriesIds = new HashMap<>();
+    // the statistics of each series, mirrored in the stats table and guarded by seriesIds
+    private final HashMap<Long, SeriesStats> seriesStats = new HashMap<>();
+    // the current bucket of each tier of each series, also guarded by seriesIds
+    private final HashMap<Long, Rollup[]> seriesRollups = new HashMap<>();
+
+    /*
+     * The hot statements are compiled once and only get their arguments
+     * bound per call. A statement can only be used by one thread at a time,
+     * so they are all guarded by statementLock.
+     */
+    private final Object statementLock = new Object();
+    private SQLiteStatement insertStatement = null;
+    private SQLiteStatement statsStatement = null;
+    private SQLiteStatement rollupStatement = null;
+    private SQLiteStatement minStatement = null;
+    private SQLiteStatement maxStatement = null;
+    // the retention, run chunk by chunk for every series
+    private SQLiteStatement sampleChunkStatement = null;
+    private SQLiteStatement deleteSamplesStatement = null;
+    private SQLiteStatement rollupChunkStatement = null;
+    private SQLiteStatement deleteRollupsStatement = null;
+
     public void open() throws SQLException
     {
       database = dbHelper.getWritableDatabase();
+      loadSeries();
+      compileStatements();
+      startWriter();
+      retentionManager.start();
     }
 
     public void close()
     {
+      retentionManager.stop();
+      // write what is still queued before the database goes away
+      stopWriter();
+      flush();
+      closeStatements();
       dbHelper.close();
     }
 
     public void reinit()
     {
-      dbHelper.reinit(database);
+      synchronized (writeLock) {
+        discardPending();
+        // the statements refer to the tables that are about to be dropped
+        closeStatements();
+        dbHelper.reinit(database);
+        loadSeries();
+        compileStatements();
+      }
     }
 
-    public void insert(Field field)
+    private void compileStatements()
     {
-        if(!Double.isNaN(field.getValue())) {
-            //MainActivity.debug("CanzeDataSource: inserting "+field.getValue()+" for "+field.getSID());
+        synchronized (statementLock) {
+            // two samples in the same millisecond: the last one wins
+            insertStatement = database.compileStatement("INSERT OR REPLACE INTO samples (series_id, moment, value) VALUES (?, ?, ?)");
+            statsStatement = database.compileStatement("INSERT OR REPLACE INTO stats (series_id, min, max, count, sum, last, last_moment) VALUES (?, ?, ?, ?, ?, ?, ?)");
+            rollupStatement = database.compileStatement("INSERT OR REPLACE INTO rollups (tier, series_id, moment, min, max, count, sum, last) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            // the windowed extremes, a range scan of the primary key
+            minStatement = database.compileStatement("SELECT MIN(value) FROM samples WHERE series_id=? AND moment>=?");
+            maxStatement = database.compileStatement("SELECT MAX(value) FROM samples WHERE series_id=? AND moment>=?");
+            // the moment of the last row of a chunk to delete, and the delete up to it
+            sampleChunkStatement = database.compileStatement("SELECT moment FROM samples WHERE series_id=? AND moment<? ORDER BY moment LIMIT 1 OFFSET ?");
+            deleteSamplesStatement = database.compileStatement("DELETE FROM samples WHERE series_id=? AND moment<=?");
+            rollupChunkStatement = database.compileStatement("SELECT moment FROM rollups WHERE tier=? AND series_id=? AND moment<? ORDER BY moment LIMIT 1 OFFSET ?");
+            deleteRollupsStatement = database.compileStatement("DELETE FROM rollups WHERE tier=? AND series_id=? AND moment<=?");
+        }
+    }
+
+    private void closeStatements()
+    {
+        synchronized (statementLock) {
+            if (insertStatement != null) insertStatement.close();
+            if (statsStatement != null) statsStatement.close();
+            if (rollupStatement != null) rollupStatement.close();
+            if (minStatement != null) minStatement.close();
+            if (maxStatement != null) maxStatement.close();
+            if (sampleChunkStatement != null) sampleChunkStatement.close();
+            if (deleteSamplesStatement != null) deleteSamplesStatement.close();
+            if (rollupChunkStatement != null) rollupChunkStatement.close();
+            if (deleteRollupsStatement != null) deleteRollupsStatement.close();
+            insertStatement = null;
+            statsStatement = null;
+            rollupStatement = null;
+            minStatement = null;
+            maxStatement = null;
+            sampleChunkStatement = null;
+            deleteSamplesStatement = null;
+            rollupChunkStatement = null;
+            deleteRollupsStatement = null;
+        }
+    }
+
+    /**
+     * Run a single value query on the samples of a series since a given moment
+     * @param statement     one of the compiled statements, with the series id and the moment as arguments
+     * @param seriesId      the id of the series
+     * @param from          the first moment to take into account
+     * @return              the value, NaN if there is none
+     */
+    private double queryForDouble(SQLiteStatement statement, long seriesId, long from)
+    {
+        if (statement == null) return Double.NaN;
+        statement.bindLong(1, seriesId);
+        statement.bindLong(2, from);
+        try {
+            // SQLiteStatement has no double variant, but the text of a REAL keeps 15 digits
+            String value = statement.simpleQueryForString();
+            return value == null ? Double.NaN : Double.parseDouble(value);
+        } catch (SQLiteDoneException e) {
+            // no row
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Queue the value of a field update to be written. This never touches the
+     * database, so it is cheap enough for the poller thread.
+     * @param snapshot  the field at its update
+     */
+    public void insert(FieldSnapshot snapshot)
+    {
+        if(snapshot != null && !Double.isNaN(snapshot.getValue())) {
+            //MainActivity.debug("CanzeDataSource: inserting "+snapshot.getValue()+" for "+snapshot.getSid());
+            long moment = snapshot.getMoment();
+            queueLock.lock();
+            try {
+                if (pending.size == 0) pendingSince = moment;
+                pending.add(snapshot.getSid(), moment, snapshot.getValue());
+                // wake the writer to start the age timer, or because the batch is full
+                if (pending.size == 1 || pending.size >= BATCH_SIZE) batchReady.signal();
+            } finally {
+                queueLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Write all queued samples right now
+     */
+    public void flush()
+    {
+        synchronized (writeLock) {
+            queueLock.lock();
+            try {
+                flushRequested = false;
+                if (pending.size == 0) return;
+                SampleBuffer batch = pending;
+                pending = writing;
+                writing = batch;
+                batchesTaken++;
+            } finally {
+                queueLock.unlock();
+            }
+            try {
+                write(writing);
+                writing.clear();
+            } finally {
+                queueLock.lock();
+                try {
+                    batchesWritten++;
+                    batchWritten.signalAll();
+                } finally {
+                    queueLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Have the writer thread write the queued samples now and wait until it
+     * has, but no longer than READ_FLUSH_TIMEOUT. Range reads call this
+     * instead of writing on their own thread, which may be the UI thread.
+     */
+    private void awaitWritten()
+    {
+        queueLock.lock();
+        try {
+            // the batch the queued samples will be in, or the one being written right now
+            long batch = batchesTaken + (pending.size > 0 ? 1 : 0);
+            if (batchesWritten >= batch || !writerActive) return;
+            if (pending.size > 0) {
+                flushRequested = true;
+                batchReady.signal();
+            }
+            long nanos = TimeUnit.MILLISECONDS.toNanos(READ_FLUSH_TIMEOUT);
+            while (batchesWritten < batch && nanos > 0) nanos = batchWritten.awaitNanos(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    /**
+     * The statistics of a sid including the samples that are still queued.
+     * The queue is merged in memory, so this never waits for the writer. A
+     * batch the writer is busy with shows up as soon as it is written.
+     * @param sid   the sid
+     * @return      a copy of the statistics
+     */
+    private SeriesStats getCurrentStats(String sid)
+    {
+        SeriesStats current = new SeriesStats();
+        synchronized (seriesIds) {
+            SeriesStats stats = getStats(sid);
+            if (stats != null) current.set(stats);
+        }
+        queueLock.lock();
+        try {
+            for (int i = 0; i < pending.size; i++) {
+                if (pending.sids[i].equals(sid)) current.add(pending.moments[i], pending.values[i]);
+            }
+        } finally {
+            queueLock.unlock();
+        }
+        return current;
+    }
+
+    // write a batch in one transaction
+    private void write(SampleBuffer batch)
+    {
+        if (database == null || !database.isOpen()) return;
+        //long start = Calendar.getInstance().getTimeInMillis();
+        synchronized (statementLock) {
+            if (insertStatement == null) return;
+            boolean written = false;
+            database.beginTransaction();
+            try {
+                synchronized (seriesIds) {
+                    HashSet<Long> touched = new HashSet<>();
+                    for (int i = 0; i < batch.size; i++) {
+                        long seriesId = getSeriesId(batch.sids[i], true);
+                        insertStatement.bindLong(1, seriesId);
+                        insertStatement.bindLong(2, batch.moments[i]);
+                        insertStatement.bindDouble(3, batch.values[i]);
+                        insertStatement.executeInsert();
+
+                        SeriesStats stats = seriesStats.get(seriesId);
+                        if (stats == null) {
+                            stats = new SeriesStats();
+                            seriesStats.put(seriesId, stats);
+                        }
+                        stats.add(batch.moments[i], batch.values[i]);
+                        addToRollups(seriesId, batch.moments[i], batch.values[i]);
+                        touched.add(seriesId);
+                    }
+                    // the statistics of each series touched are written once per batch
+                    for (long seriesId : touched) {
+                        writeStats(seriesId, seriesStats.get(seriesId));
+
+                        // so are the current buckets, the closed ones have been written when they closed
+                        Rollup[] rollups = seriesRollups.get(seriesId);
+                        for (int tier = 0; tier < rollups.length; tier++) writeRollup(tier, seriesId, rollups[tier]);
+                    }
+                }
+                database.setTransactionSuccessful();
+                written = true;
+            } catch (SQLException e) {
+                MainActivity.debug("CanzeDataSource: writing " + batch.size + " samples failed: " + e.getMessage());
+            } finally {
+                database.endTransaction();
+            }
+            // the batch was rolled back, so the statistics in memory are off
+            if (!written) loadSeries();
+        }
+        //MainActivity.debug("CanzeDataSource: wrote " + batch.size + " samples in " + (Calendar.getInstance().getTimeInMillis() - start) + " ms");
+    }
+
+    // must be called holding the lock on seriesIds and statementLock
+    private void writeStats(long seriesId, SeriesStats stats)
+    {
+        statsStatement.bindLong(1, seriesId);
+        // a series the retention emptied has no extremes, but the columns are
+        // NOT NULL and SQLite stores NaN as NULL. They are ignored when loaded
+        statsStatement.bindDouble(2, stats.count > 0 ? stats.min : 0);
+        statsStatement.bindDouble(3, stats.count > 0 ? stats.max : 0);
+        statsStatement.bindLong(4, stats.count);
+        statsStatement.bindDouble(5, stats.sum);
+        statsStatement.bindDouble(6, stats.last);
+        statsStatement.bindLong(7, stats.lastMoment);
+        statsStatement.executeInsert();
+    }
+
+    // must be called holding the lock on seriesIds and statementLock, inside of the transaction
+    private void addToRollups(long seriesId, long moment, double value)
+    {
+        Rollup[] rollups = seriesRollups.get(seriesId);
+        if (rollups == null) {
+            rollups = new Rollup[ROLLUP_TIERS.length];
+            seriesRollups.put(seriesId, rollups);
+        }
+        for (int tier = 0; tier < rollups.length; tier++) {
+            long bucket = moment - moment % ROLLUP_TIERS[tier];
+            Rollup rollup = rollups[tier];
+            if (rollup == null) {
+                // first sample since the start, the bucket may already be partly in the table
+                rollup = readRollup(tier, seriesId, bucket);
+                rollups[tier] = rollup;
+            } else if (bucket > rollup.moment) {
+                // the bucket is closed, write it for the last time and start the next one
+                writeRollup(tier, seriesId, rollup);
+                rollup.reset(bucket);
+            } else if (bucket < rollup.moment) {
+                // a late sample of a closed bucket, it is only kept in the raw samples
+                continue;
+            }
+            rollup.add(moment, value);
+        }
+    }
+
+    private Rollup readRollup(int tier, long seriesId, long bucket)
+    {
+        Rollup rollup = new Rollup();
+        rollup.reset(bucket);
+        Cursor c = database.rawQuery("SELECT min, max, count, sum, last FROM rollups WHERE tier=? AND series_id=? AND moment=?",
+                new String[] {Integer.toString(tier), Long.toString(seriesId), Long.toString(bucket)});
+        if (c.moveToFirst()) {
+            rollup.min = c.getDouble(0);
+            rollup.max = c.getDouble(1);
+            rollup.count = c.getLong(2);
+            rollup.sum = c.getDouble(3);
+            rollup.last = c.getDouble(4);
+            // the samples to come are newer than those already in the bucket
+            rollup.lastMoment = bucket;
+        }
+        c.close();
+        return rollup;
+    }
+
+    private void writeRollup(int tier, long seriesId, Rollup rollup)
+    {
+        if (rollup == null || rollup.count == 0) return;
+        rollupStatement.bindLong(1, tier);
+        rollupStatement.bindLong(2, seriesId);
+        rollupStatement.bindLong(3, rollup.moment);
+        rollupStatement.bindDouble(4, rollup.min);
+        rollupStatement.bindDouble(5, rollup.max);
+        rollupStatement.bindLong(6, rollup.count);
+        rollupStatement.bindDouble(7, rollup.sum);
+        rollupStatement.bindDouble(8, rollup.last);
+        rollupStatement.executeInsert();
+    }
+
+    private void discardPending()
+    {
+        synchronized (writeLock) {
+            queueLock.lock();
+            try {
+                pending.clear();
+            } finally {
+                queueLock.unlock();
+            }
+        }
+    }
+
+    private void startWriter()
+    {
+        if (writerThread != null && writerThread.isAlive()) return;
+        writerActive = true;
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (writerActive) {
+                    queueLock.lock();
+                    try {
+                        // wait until the batch is full or old enough
+                        while (writerActive && !flushRequested && pending.size < BATCH_SIZE) {
+                            long wait = pending.size == 0 ? BATCH_AGE
+                                    : pendingSince + BATCH_AGE - Calendar.getInstance().getTimeInMillis();
+                            if (wait <= 0) break;
+                            batchReady.await(wait, TimeUnit.MILLISECONDS);
+                        }
+                    } catch (InterruptedException e) {
+                        // stopped
+                    } finally {
+                        queueLock.unlock();
+                    }
+                    if (writerActive) flush();
+                }
+            }
+        });
+        writerThread.setName("CanzeDataSource writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private void stopWriter()
+    {
+        writerActive = false;
+        if (writerThread == null) return;
+        queueLock.lock();
+        try {
+            batchReady.signal();
+        } finally {
+            queueLock.unlock();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+    }
+
+    private void loadSeries()
+    {
+        synchronized (seriesIds) {
+            seriesIds.clear();
+            Cursor c = database.rawQuery("SELECT id, sid FROM series", null);
+            while (c.moveToNext()) seriesIds.put(c.getString(1), c.getLong(0));
+            c.close();
+
+            seriesStats.clear();
+            c = database.rawQuery("SELECT series_id, min, max, count, sum, last, last_moment FROM stats", null);
+            while (c.moveToNext()) {
+                SeriesStats stats = new SeriesStats();
+                stats.count = c.getLong(3);
+                stats.min = stats.count > 0 ? c.getDouble(1) : Double.NaN;
+                stats.max = stats.count > 0 ? c.getDouble(2) : Double.NaN;
+                stats.sum = c.getDouble(4);
+                stats.last = c.getDouble(5);
+                stats.lastMoment = c.getLong(6);
+                seriesStats.put(c.getLong(0), stats);
+            }
+            c.close();
+
+            // the current buckets are read back from the table when their series gets its next sample
+            seriesRollups.clear();
+        }
+    }
+
+    /**
+     * @param sid       the sid of a field
+     * @param create    add the sid to the series table if it is not in yet
+     * @return          the id of the series of the sid, -1 if it has none
+     */
+    private long getSeriesId(String sid, boolean create)
+    {
+        synchronized (seriesIds) {
+            Long id = seriesIds.get(sid);
+            if (id != null) return id;
+            if (!create) return -1;
+
             ContentValues values = new ContentValues();
-            values.put("sid", field.getSID());
-            values.put("moment", Calendar.getInstance().getTimeInMillis());
-            values.put("value", field.getValue());
-            database.insert("data", null, values);
+            values.put("sid", sid);
+            long newId = database.insert("series", null, values);
+            if (newId >= 0) seriesIds.put(sid, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Parallel arrays of samples, so queueing a sample does not allocate
+     */
+    private static class SampleBuffer
+    {
+        String[] sids = new String[BATCH_SIZE];
+        long[] moments = new long[BATCH_SIZE];
+        double[] values = new double[BATCH_SIZE];
+        int size = 0;
+
+        void add(String sid, long moment, double value)
+        {
+            // the writer is behind, make room instead of blocking the poller
+            if (size == sids.length) {
+                String[] newSids = new String[size * 2];
+                long[] newMoments = new long[size * 2];
+                double[] newValues = new double[size * 2];
+                System.arraycopy(sids, 0, newSids, 0, size);
+                System.arraycopy(moments, 0, newMoments, 0, size);
+                System.arraycopy(values, 0, newValues, 0, size);
+                sids = newSids;
+                moments = newMoments;
+                values = newValues;
+            }
+            sids[size] = sid;
+            moments[size] = moment;
+            values[size] = value;
+            size++;
         }
+
+        void clear()
+        {
+            for (int i = 0; i < size; i++) sids[i] = null;
+            size = 0;
+        }
+    }
+
+    public RetentionManager getRetentionManager()
+    {
+        return retentionManager;
     }
 
+    /**
+     * Delete the samples that are older than their retention. This happens
+     * on the background thread of the retention manager, so it returns at once.
+     */
     public void cleanUp()
     {
-        long limit = Calendar.getInstance().getTimeInMillis()-LIMIT;
-        database.rawQuery("DELETE FROM data WHERE moment<" + limit, null);
+        retentionManager.requestPass();
+    }
+
+    /**
+     * @return  a copy of the series ids by sid
+     */
+    HashMap<String, Long> getSeries()
+    {
+        synchronized (seriesIds) {
+            return new HashMap<>(seriesIds);
+        }
+    }
+
+    /**
+     * Delete the oldest samples of a series, at most a chunk of them. The
+     * chunk is located and deleted through the primary key, and the writer
+     * only has to wait for this single chunk.
+     * @param seriesId  the series
+     * @param before    the samples before this moment are deleted
+     * @param chunk     the maximum number of samples to delete
+     * @return          the number of samples deleted
+     */
+    int deleteOldSamples(long seriesId, long before, int chunk)
+    {
+        synchronized (writeLock) {
+            if (database == null || !database.isOpen()) return 0;
+            synchronized (statementLock) {
+                if (sampleChunkStatement == null) return 0;
+
+                // the moment of the last sample of the chunk
+                long last = before - 1;
+                sampleChunkStatement.bindLong(1, seriesId);
+                sampleChunkStatement.bindLong(2, before);
+                sampleChunkStatement.bindLong(3, chunk - 1);
+                try {
+                    last = sampleChunkStatement.simpleQueryForLong();
+                } catch (SQLiteDoneException e) {
+                    // less than a chunk left
+                }
+
+                deleteSamplesStatement.bindLong(1, seriesId);
+                deleteSamplesStatement.bindLong(2, last);
+                return deleteSamplesStatement.executeUpdateDelete();
+            }
+        }
+    }
+
+    /**
+     * Recompute the extremes, the count and the sum of a series from the
+     * samples that are left, after the retention deleted some. getMin, getMax
+     * and getAverage thus cover the retained samples, not all that have ever
+     * been written. The last value is kept, even if its sample is gone.
+     * @param seriesId  the series
+     */
+    void recomputeStats(long seriesId)
+    {
+        synchronized (writeLock) {
+            if (database == null || !database.isOpen()) return;
+            synchronized (statementLock) {
+                if (statsStatement == null) return;
+                synchronized (seriesIds) {
+                    SeriesStats stats = seriesStats.get(seriesId);
+                    if (stats == null) return;
+                    Cursor c = database.rawQuery("SELECT MIN(value), MAX(value), COUNT(*), SUM(value) FROM samples WHERE series_id=?",
+                            new String[] {Long.toString(seriesId)});
+                    if (c.moveToFirst()) {
+                        stats.count = c.getLong(2);
+                        stats.min = stats.count > 0 ? c.getDouble(0) : Double.NaN;
+                        stats.max = stats.count > 0 ? c.getDouble(1) : Double.NaN;
+                        stats.sum = stats.count > 0 ? c.getDouble(3) : 0;
+                    }
+                    c.close();
+                    writeStats(seriesId, stats);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the oldest buckets of a tier of a series, at most a chunk of them
+     * @param tier      the rollup tier
+     * @param seriesId  the series
+     * @param before    the buckets starting before this moment are deleted
+     * @param chunk     the maximum number of buckets to delete
+     * @return          the number of buckets deleted
+     */
+    int deleteOldRollups(int tier, long seriesId, long before, int chunk)
+    {
+        synchronized (writeLock) {
+            if (database == null || !database.isOpen()) return 0;
+            synchronized (statementLock) {
+                if (rollupChunkStatement == null) return 0;
+
+                // the moment of the last bucket of the chunk
+                long last = before - 1;
+                rollupChunkStatement.bindLong(1, tier);
+                rollupChunkStatement.bindLong(2, seriesId);
+                rollupChunkStatement.bindLong(3, before);
+                rollupChunkStatement.bindLong(4, chunk - 1);
+                try {
+                    last = rollupChunkStatement.simpleQueryForLong();
+                } catch (SQLiteDoneException e) {
+                    // less than a chunk left
+                }
+
+                deleteRollupsStatement.bindLong(1, tier);
+                deleteRollupsStatement.bindLong(2, seriesId);
+                deleteRollupsStatement.bindLong(3, last);
+                return deleteRollupsStatement.executeUpdateDelete();
+            }
+        }
     }
 
     public void clear()
     {
-        dbHelper.reinit(database);
+        reinit();
         //database.rawQuery("DELETE FROM data",null);
     }
 
     public double getLast(String sid)
     {
-        double data = Double.NaN;
-
-        Cursor c = database.rawQuery("SELECT * FROM data WHERE sid='"+sid+"' ORDER BY moment DESC LIMIT 1", null);
         //MainActivity.debug("CanzeDataSource: getting last for "+sid);
-        c.moveToFirst();
-        if (!c.isAfterLast()) {
-            data = c.getDouble(c.getColumnIndex("value"));
-            //MainActivity.debug("CanzeDataSource: got value "+data);
+        return getCurrentStats(sid).last;
+    }
+
+    /**
+     * Get the last value of every sid at once, instead of one query per sid.
+     * They come from the statistics and the queue, so this doesn't touch the
+     * database.
+     * @return  the last value by sid
+     */
+    public HashMap<String, Double> getLastValues()
+    {
+        HashMap<String, Double> data = new HashMap<>();
+
+        synchronized (seriesIds) {
+            for (String sid : seriesIds.keySet()) {
+                SeriesStats stats = getStats(sid);
+                if (stats != null) data.put(sid, stats.last);
+            }
+        }
+        // the queued samples are newer than the written ones
+        queueLock.lock();
+        try {
+            for (int i = 0; i < pending.size; i++) data.put(pending.sids[i], pending.values[i]);
+        } finally {
+            queueLock.unlock();
         }
-        // make sure to close the cursor
-        c.close();
 
         return data;
     }
 
+    /**
+     * @param sid   the sid
+     * @return      the highest value of the retained samples
+     */
     public double getMax(String sid)
     {
-        double data = Double.NaN;
+        return getCurrentStats(sid).max;
+    }
 
-        Cursor c = database.rawQuery("SELECT MAX(value) FROM data WHERE sid='"+sid+"' ORDER BY moment DESC LIMIT 1", null);
-        //MainActivity.debug("CanzeDataSource: getting last for "+sid);
-        c.moveToFirst();
-        if (!c.isAfterLast()) {
-            data = c.getDouble(0);
-            //MainActivity.debug("CanzeDataSource: got value "+data);
-        }
-        // make sure to close the cursor
-        c.close();
+    /**
+     * @param sid   the sid
+     * @return      the lowest value of the retained samples
+     */
+    public double getMin(String sid)
+    {
+        return getCurrentStats(sid).min;
+    }
 
-        return data;
+    /**
+     * @param sid   the sid
+     * @return      the average of the retained samples
+     */
+    public double getAverage(String sid)
+    {
+        return getCurrentStats(sid).getAverage();
     }
 
-    public double getMin(String sid)
+    /**
+     * @param sid       the sid
+     * @param window    the length of the window (ms) up to now
+     * @return          the highest value in the window
+     */
+    public double getMax(String sid, long window)
     {
-        double data = Double.NaN;
+        // include the samples still waiting to be written
+        awaitWritten();
 
-        Cursor c = database.rawQuery("SELECT MIN(value) FROM data WHERE sid='"+sid+"' ORDER BY moment DESC LIMIT 1", null);
-        //MainActivity.debug("CanzeDataSource: getting last for "+sid);
-        c.moveToFirst();
-        if (!c.isAfterLast()) {
-            data = c.getDouble(0);
-            //MainActivity.debug("CanzeDataSource: got value "+data);
+        long seriesId = getSeriesId(sid, false);
+        if (seriesId < 0) return Double.NaN;
+
+        synchronized (statementLock) {
+            return queryForDouble(maxStatement, seriesId, Calendar.getInstance().getTimeInMillis() - window);
         }
-        // make sure to close the cursor
-        c.close();
+    }
 
-        return data;
+    /**
+     * @param sid       the sid
+     * @param window    the length of the window (ms) up to now
+     * @return          the lowest value in the window
+     */
+    public double getMin(String sid, long window)
+    {
+        // include the samples still waiting to be written
+        awaitWritten();
+
+        long seriesId = getSeriesId(sid, false);
+        if (seriesId < 0) return Double.NaN;
+
+        synchronized (statementLock) {
+            return queryForDouble(minStatement, seriesId, Calendar.getInstance().getTimeInMillis() - window);
+        }
+    }
+
+    // must be called holding the lock on seriesIds
+    private SeriesStats getStats(String sid)
+    {
+        Long seriesId = seriesIds.get(sid);
+        return seriesId != null ? seriesStats.get(seriesId) : null;
     }
 
     public ArrayList<TimePoint> getData(String sid)
     {
         ArrayList<TimePoint> data = new ArrayList<>();
+        // include the samples still waiting to be written
+        awaitWritten();
+
+        long seriesId = getSeriesId(sid, false);
+        if (seriesId < 0) return data;
 
-        Cursor c = database.rawQuery("SELECT * FROM data WHERE sid='"+sid+"' ORDER BY moment ASC", null);
+        // a constant query with bound arguments is compiled once and then reused by SQLite
+        Cursor c = database.rawQuery("SELECT moment, value FROM samples WHERE series_id=? ORDER BY moment ASC", new String[] {Long.toString(seriesId)});
         c.moveToFirst();
         while (!c.isAfterLast())
         {
             TimePoint b = new TimePoint(
-                    c.getLong(c.getColumnIndex("moment")),
-                    c.getDouble(c.getColumnIndex("value"))
+                    c.getLong(0),
+                    c.getDouble(1)
             );
             data.add(b);
             c.moveToNext();
@@ -177,11 +866,104 @@ public class CanzeDataSource implements FieldListener
         return data;
     }
 
+    /**
+     * Get the history of a sid in a time window, reduced to at most maxPoints
+     * points. The window is cut into maxPoints/2 buckets and each bucket is
+     * reduced by SQLite to its lowest and highest value, so spikes survive
+     * while a plot only gets the points it can display.
+     *
+     * The buckets are built from the coarsest rollup tier that is still fine
+     * enough for them, so the number of rows read does not grow with the
+     * length of the window. The raw samples are only read if no tier is fine
+     * enough and they still reach back to the start of the window.
+     * @param sid           the sid
+     * @param fromMoment    the start of the window (ms)
+     * @param toMoment      the end of the window (ms)
+     * @param maxPoints     the maximum number of points, e.g. the width of the plot in pixels
+     * @return              the points, ordered by moment
+     */
+    public ArrayList<TimePoint> getData(String sid, long fromMoment, long toMoment, int maxPoints)
+    {
+        ArrayList<TimePoint> data = new ArrayList<>();
+        // include the samples still waiting to be written
+        awaitWritten();
+
+        long seriesId = getSeriesId(sid, false);
+        if (seriesId < 0 || toMoment < fromMoment) return data;
+
+        long buckets = Math.max(1, maxPoints / 2);
+        long bucket = Math.max(1, (toMoment - fromMoment + 1 + buckets - 1) / buckets);
+
+        int tier = getTier(sid, fromMoment, bucket);
+        if (tier >= 0) {
+            // the bucket containing the start of the window is in as well
+            long tierFrom = fromMoment - fromMoment % ROLLUP_TIERS[tier];
+            Cursor c = database.rawQuery("SELECT MIN(moment), MAX(moment), MIN(min), MAX(max) FROM rollups "
+                    + "WHERE tier=? AND series_id=? AND moment BETWEEN ? AND ? GROUP BY (moment - ?) / ? ORDER BY 1",
+                    new String[] {Integer.toString(tier), Long.toString(seriesId), Long.toString(tierFrom), Long.toString(toMoment),
+                            Long.toString(tierFrom), Long.toString(bucket)});
+            while (c.moveToNext())
+            {
+                long first = Math.max(fromMoment, c.getLong(0));
+                long last = Math.max(fromMoment, c.getLong(1));
+                double min = c.getDouble(2);
+                double max = c.getDouble(3);
+                data.add(new TimePoint(first, min));
+                if (last != first || max != min) data.add(new TimePoint(last, max));
+            }
+            c.close();
+
+            return data;
+        }
+
+        // the moments of the extremes are not known without bare columns (SQLite 3.7.11), so the
+        // lowest one is put at the first and the highest at the last moment of the bucket. A bucket
+        // is about one pixel wide, so the order inside of it does not show.
+        Cursor c = database.rawQuery("SELECT MIN(moment), MAX(moment), MIN(value), MAX(value) FROM samples "
+                + "WHERE series_id=? AND moment BETWEEN ? AND ? GROUP BY (moment - ?) / ? ORDER BY 1",
+                new String[] {Long.toString(seriesId), Long.toString(fromMoment), Long.toString(toMoment),
+                        Long.toString(fromMoment), Long.toString(bucket)});
+        while (c.moveToNext())
+        {
+            long first = c.getLong(0);
+            long last = c.getLong(1);
+            double min = c.getDouble(2);
+            double max = c.getDouble(3);
+            data.add(new TimePoint(first, min));
+            if (last != first || max != min) data.add(new TimePoint(last, max));
+        }
+        // make sure to close the cursor
+        c.close();
+
+        return data;
+    }
+
+    /**
+     * @param sid           the sid
+     * @param fromMoment    the start of the window (ms)
+     * @param bucket        the wanted resolution (ms)
+     * @return              the rollup tier to read the window from, -1 for the raw samples
+     */
+    private int getTier(String sid, long fromMoment, long bucket)
+    {
+        long now = Calendar.getInstance().getTimeInMillis();
+        // the coarsest tier that is fine enough and still has the start of the window
+        for (int tier = ROLLUP_TIERS.length - 1; tier >= 0; tier--) {
+            if (ROLLUP_TIERS[tier] <= bucket && fromMoment >= now - retentionManager.getTierRetention(tier)) return tier;
+        }
+        if (fromMoment >= now - retentionManager.getRetention(sid)) return -1;
+        // the raw samples are gone, so take the finest tier that still has the window
+        for (int tier = 0; tier < ROLLUP_TIERS.length; tier++) {
+            if (fromMoment >= now - retentionManager.getTierRetention(tier)) return tier;
+        }
+        return ROLLUP_TIERS.length - 1;
+    }
+
     /*
      * Singleton stuff
      */
     @Override
     public void onFieldUpdateEvent(Field field) {
-        insert(field);
+        insert(field.getSnapshot());
     }
 }
@@ -22,12 +22,20 @@
 package lu.fisch.canze.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
 public class CanzeOpenHelper extends SQLiteOpenHelper
 {
-    private static final int DATABASE_VERSION = 1;
+    /*
+     * Version 1 stored the sid string in every row of "data".
+     * Version 2 keeps each sid once in "series" and the samples in "samples",
+     * keyed by (series_id, moment).
+     * Version 3 adds the rolling statistics of each series in "stats".
+     * Version 4 adds the aggregated buckets of each rollup tier in "rollups".
+     */
+    private static final int DATABASE_VERSION = 4;
     private static final String DATABASE_NAME = "lu.fisch.canze.db";
     
     CanzeOpenHelper(Context context)
@@ -39,21 +47,74 @@ public class CanzeOpenHelper extends SQLiteOpenHelper
     public void onCreate(SQLiteDatabase db)
     {
 		// create the database
-		db.execSQL("CREATE TABLE data (sid TEXT NOT NULL, moment INTEGER NOT NULL, value REAL NOT NULL)");
-		// set an index on the "sid" field
-		db.execSQL("CREATE INDEX indexSid ON data (sid)");
-		//db.execSQL("CREATE TABLE data (id_data INTEGER PRIMARY KEY AUTOINCREMENT, sid TEXT NOT NULL, moment INTEGER NOT NULL, value REAL NOT NULL)");
+		createSamples(db);
+		createStats(db);
+		createRollups(db);
     }
 
 	@Override
 	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion)
 	{
-	    onCreate(db);
+		// this runs inside a transaction
+		if (oldVersion < 2) {
+			// move the samples over to the normalized tables
+			createSamples(db);
+			db.execSQL("INSERT INTO series (sid) SELECT DISTINCT sid FROM data");
+			db.execSQL("INSERT OR REPLACE INTO samples (series_id, moment, value) "
+					+ "SELECT series.id, data.moment, data.value FROM data JOIN series ON series.sid = data.sid");
+			db.execSQL("DROP TABLE data");
+		}
+		if (oldVersion < 3) {
+			// compute the statistics of the samples already there
+			createStats(db);
+			db.execSQL("INSERT INTO stats (series_id, min, max, count, sum, last, last_moment) "
+					+ "SELECT series_id, MIN(value), MAX(value), COUNT(*), SUM(value), "
+					+ "(SELECT value FROM samples AS s WHERE s.series_id = samples.series_id ORDER BY moment DESC LIMIT 1), "
+					+ "MAX(moment) FROM samples GROUP BY series_id");
+		}
+		if (oldVersion < 4) {
+			// roll up the samples already there, the last value is the one of the newest sample in the bucket
+			createRollups(db);
+			for (int tier = 0; tier < CanzeDataSource.ROLLUP_TIERS.length; tier++) {
+				long size = CanzeDataSource.ROLLUP_TIERS[tier];
+				String bucket = "(samples.moment / " + size + ") * " + size;
+				db.execSQL("INSERT INTO rollups (tier, series_id, moment, min, max, count, sum, last) "
+						+ "SELECT " + tier + ", series_id, " + bucket + ", MIN(value), MAX(value), COUNT(*), SUM(value), "
+						+ "(SELECT value FROM samples AS s WHERE s.series_id = samples.series_id AND s.moment >= " + bucket
+						+ " AND s.moment < " + bucket + " + " + size + " ORDER BY moment DESC LIMIT 1) "
+						+ "FROM samples GROUP BY series_id, " + bucket);
+			}
+		}
+	}
+
+	private void createSamples(SQLiteDatabase db)
+	{
+		db.execSQL("CREATE TABLE series (id INTEGER PRIMARY KEY, sid TEXT NOT NULL UNIQUE)");
+		// the samples are stored clustered by their key, if the SQLite version supports it (3.8.2, Android 5)
+		db.execSQL("CREATE TABLE samples (series_id INTEGER NOT NULL, moment INTEGER NOT NULL, value REAL NOT NULL, "
+				+ "PRIMARY KEY (series_id, moment))" + (supportsWithoutRowid(db) ? " WITHOUT ROWID" : ""));
+	}
+
+	private void createStats(SQLiteDatabase db)
+	{
+		db.execSQL("CREATE TABLE stats (series_id INTEGER PRIMARY KEY, min REAL NOT NULL, max REAL NOT NULL, "
+				+ "count INTEGER NOT NULL, sum REAL NOT NULL, last REAL NOT NULL, last_moment INTEGER NOT NULL)");
 	}
 	
+	private void createRollups(SQLiteDatabase db)
+	{
+		db.execSQL("CREATE TABLE rollups (tier INTEGER NOT NULL, series_id INTEGER NOT NULL, moment INTEGER NOT NULL, "
+				+ "min REAL NOT NULL, max REAL NOT NULL, count INTEGER NOT NULL, sum REAL NOT NULL, last REAL NOT NULL, "
+				+ "PRIMARY KEY (tier, series_id, moment))" + (supportsWithoutRowid(db) ? " WITHOUT ROWID" : ""));
+	}
+
 	public void clear(SQLiteDatabase db)
 	{
 	    db.execSQL("DROP TABLE IF EXISTS data");
+	    db.execSQL("DROP TABLE IF EXISTS rollups");
+	    db.execSQL("DROP TABLE IF EXISTS stats");
+	    db.execSQL("DROP TABLE IF EXISTS samples");
+	    db.execSQL("DROP TABLE IF EXISTS series");
 	}
 
 	public void reinit(SQLiteDatabase db)
@@ -61,4 +122,17 @@ public class CanzeOpenHelper extends SQLiteOpenHelper
 		clear(db);
 		onCreate(db);
 	}
+
+	private static boolean supportsWithoutRowid(SQLiteDatabase db)
+	{
+		Cursor c = db.rawQuery("SELECT sqlite_version()", null);
+		String version = c.moveToFirst() ? c.getString(0) : "0";
+		c.close();
+
+		String[] parts = version.split("\\.");
+		int major = parts.length > 0 ? Integer.parseInt(parts[0]) : 0;
+		int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+		int patch = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+		return major > 3 || (major == 3 && (minor > 8 || (minor == 8 && patch >= 2)));
+	}
 }
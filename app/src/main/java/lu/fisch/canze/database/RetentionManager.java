@@ -0,0 +1,248 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.database;
+
+import android.database.SQLException;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import lu.fisch.canze.activities.MainActivity;
+
+/**
+ * Keeps the samples table bounded. Old samples are deleted on a background
+ * thread, series by series and in small chunks through the primary key, so
+ * the writer never waits for more than one chunk.
+ *
+ * Each sid can have its own retention, e.g. days for the slow state of
+ * charge and minutes for a torque sampled every 10 ms. The others keep their
+ * samples for the default retention.
+ *
+ * The rollup tiers have a retention of their own, the same for all sids.
+ */
+public class RetentionManager
+{
+    public static final long DEFAULT_RETENTION = 60*60*1000;  // 1 h
+    // 10 s for a day, 1 min for a week and 15 min for three months
+    public static final long[] DEFAULT_TIER_RETENTIONS = {24*60*60*1000L, 7*24*60*60*1000L, 90*24*60*60*1000L};
+
+    private static final int CHUNK_SIZE = 500;
+    // pause between two chunks, to let the writer in
+    private static final long CHUNK_PAUSE = 20;
+    // time between two passes
+    private static final long PASS_INTERVAL = 5*60*1000;  // 5 min
+
+    private final CanzeDataSource dataSource;
+    private final HashMap<String, Long> retentions = new HashMap<>();
+    private long defaultRetention = DEFAULT_RETENTION;
+    private final long[] tierRetentions = DEFAULT_TIER_RETENTIONS.clone();
+
+    private Thread thread = null;
+    private volatile boolean active = false;
+    private boolean passRequested = false;
+
+    // what has been done so far
+    private volatile long deletedRows = 0;
+    private volatile long timeSpent = 0;
+    private volatile long passes = 0;
+
+    RetentionManager(CanzeDataSource dataSource)
+    {
+        this.dataSource = dataSource;
+    }
+
+    /* --------------------------------
+     * Configuration
+     \ ------------------------------ */
+
+    /**
+     * @param sid       the sid
+     * @param retention how long (ms) to keep the samples of the sid
+     */
+    public synchronized void setRetention(String sid, long retention)
+    {
+        retentions.put(sid, retention);
+    }
+
+    /**
+     * @param retention how long (ms) to keep the samples of any sid without a retention of its own
+     */
+    public synchronized void setDefaultRetention(long retention)
+    {
+        defaultRetention = retention;
+    }
+
+    public synchronized long getRetention(String sid)
+    {
+        Long retention = retentions.get(sid);
+        return retention != null ? retention : defaultRetention;
+    }
+
+    /**
+     * @param tier      the rollup tier, e.g. CanzeDataSource.TIER_1MIN
+     * @param retention how long (ms) to keep the buckets of the tier
+     */
+    public synchronized void setTierRetention(int tier, long retention)
+    {
+        tierRetentions[tier] = retention;
+    }
+
+    public synchronized long getTierRetention(int tier)
+    {
+        return tierRetentions[tier];
+    }
+
+    /* --------------------------------
+     * Statistics
+     \ ------------------------------ */
+
+    public long getDeletedRows()
+    {
+        return deletedRows;
+    }
+
+    /**
+     * @return  the time (ms) spent deleting
+     */
+    public long getTimeSpent()
+    {
+        return timeSpent;
+    }
+
+    public long getPasses()
+    {
+        return passes;
+    }
+
+    /* --------------------------------
+     * Background thread
+     \ ------------------------------ */
+
+    void start()
+    {
+        if (thread != null && thread.isAlive()) return;
+        active = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (active) {
+                    try {
+                        runPass();
+                    } catch (SQLException e) {
+                        // try again with the next pass, rather than taking the app down
+                        MainActivity.debug("RetentionManager: pass failed: " + e.getMessage());
+                    }
+                    synchronized (RetentionManager.this) {
+                        try {
+                            if (!passRequested) RetentionManager.this.wait(PASS_INTERVAL);
+                        } catch (InterruptedException e) {
+                            // stopped
+                        }
+                        passRequested = false;
+                    }
+                }
+            }
+        });
+        thread.setName("CanzeDataSource retention");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop()
+    {
+        active = false;
+        if (thread == null) return;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * Have the background thread run a pass now instead of waiting for the next one
+     */
+    public synchronized void requestPass()
+    {
+        passRequested = true;
+        notifyAll();
+    }
+
+    private void runPass()
+    {
+        long start = Calendar.getInstance().getTimeInMillis();
+        long deleted = 0;
+
+        for (Map.Entry<String, Long> series : dataSource.getSeries().entrySet()) {
+            long before = Calendar.getInstance().getTimeInMillis() - getRetention(series.getKey());
+            long seriesDeleted = 0;
+            boolean stopped = false;
+            int chunk;
+            do {
+                if (!active) {
+                    stopped = true;
+                    break;
+                }
+                chunk = dataSource.deleteOldSamples(series.getValue(), before, CHUNK_SIZE);
+                seriesDeleted += chunk;
+                if (chunk > 0 && !pause()) {
+                    stopped = true;
+                    break;
+                }
+            } while (chunk >= CHUNK_SIZE);
+            deleted += seriesDeleted;
+            // the extremes may have been among the deleted samples
+            if (seriesDeleted > 0) dataSource.recomputeStats(series.getValue());
+            if (stopped) return;
+
+            for (int tier = 0; tier < CanzeDataSource.ROLLUP_TIERS.length; tier++) {
+                before = Calendar.getInstance().getTimeInMillis() - getTierRetention(tier);
+                do {
+                    if (!active) return;
+                    chunk = dataSource.deleteOldRollups(tier, series.getValue(), before, CHUNK_SIZE);
+                    deleted += chunk;
+                    if (chunk > 0 && !pause()) return;
+                } while (chunk >= CHUNK_SIZE);
+            }
+        }
+
+        long spent = Calendar.getInstance().getTimeInMillis() - start;
+        deletedRows += deleted;
+        timeSpent += spent;
+        passes++;
+        MainActivity.debug("RetentionManager: deleted " + deleted + " rows in " + spent + " ms");
+    }
+
+    // let the writer in, false if stopped meanwhile
+    private boolean pause()
+    {
+        try {
+            Thread.sleep(CHUNK_PAUSE);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.database;
+
+/**
+ * One bucket of a rollup tier: the statistics of the samples of a series
+ * between moment and moment + the size of the tier.
+ */
+class Rollup extends SeriesStats
+{
+    long moment = -1;
+
+    void reset(long moment)
+    {
+        this.moment = moment;
+        min = Double.NaN;
+        max = Double.NaN;
+        count = 0;
+        sum = 0;
+        last = Double.NaN;
+        lastMoment = 0;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.database;
+
+/**
+ * The rolling statistics of one series, kept up to date as samples are
+ * written, so the extremes and the last value can be read without a query.
+ * When the retention deletes samples, they are recomputed from those left.
+ */
+class SeriesStats
+{
+    double min = Double.NaN;
+    double max = Double.NaN;
+    long count = 0;
+    double sum = 0;
+    double last = Double.NaN;
+    long lastMoment = 0;
+
+    void set(SeriesStats stats)
+    {
+        min = stats.min;
+        max = stats.max;
+        count = stats.count;
+        sum = stats.sum;
+        last = stats.last;
+        lastMoment = stats.lastMoment;
+    }
+
+    void add(long moment, double value)
+    {
+        if (count == 0 || value < min) min = value;
+        if (count == 0 || value > max) max = value;
+        count++;
+        sum += value;
+        // samples of a batch come in order, but never go back in time
+        if (moment >= lastMoment) {
+            last = value;
+            lastMoment = moment;
+        }
+    }
+
+    double getAverage()
+    {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+}
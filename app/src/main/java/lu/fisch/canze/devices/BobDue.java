@@ -21,13 +21,11 @@
 
 package lu.fisch.canze.devices;
 
-import java.io.IOException;
 import java.util.Calendar;
 
 import lu.fisch.canze.activities.MainActivity;
 import lu.fisch.canze.actors.Field;
 import lu.fisch.canze.actors.Message;
-import lu.fisch.canze.bluetooth.BluetoothManager;
 
 /**
  * Created by robertfisch on 07.09.2015.
@@ -44,6 +42,7 @@ public class BobDue extends Device {
     private static final int TIMEOUT = 500;
     // define End Of Message for this type of reader
     private static final char EOM = '\n';
+    private static final String EOMS = String.valueOf(EOM);
     // the actual filter
     //private int fieldIndex = 0;
     // the thread that polls the data to the stack
@@ -55,8 +54,8 @@ public class BobDue extends Device {
     @Override
     public void registerFilter(int frameId) {
         String filter = Integer.toHexString(frameId);
-        if(BluetoothManager.getInstance().isConnected())
-            BluetoothManager.getInstance().write("f" + filter + "\n");
+        if(getTransport().isConnected())
+            getTransport().write("f" + filter + "\n");
         else
             MainActivity.debug("BobDue.registerFilter " + filter + " failed because connectedBluetoothThread is NULL");
     }
@@ -64,29 +63,27 @@ public class BobDue extends Device {
     @Override
     public void unregisterFilter(int frameId) {
         String filter = Integer.toHexString(frameId);
-        if(BluetoothManager.getInstance().isConnected())
-            BluetoothManager.getInstance().write("r" + filter + "\n");
+        if(getTransport().isConnected())
+            getTransport().write("r" + filter + "\n");
         else
             MainActivity.debug("BobDue.unregisterFilter " + filter + " failed because connectedBluetoothThread is NULL");
     }
 
-    // send a command and wait for an answer
-    private String sendAndWaitForAnswer(String command, int waitMillis)
+    // reusable buffers for the answer lines and the decoded payloads
+    private final StringBuilder readBuffer = new StringBuilder(256);
+    private final byte[] responseBytes = new byte[4096];
+
+    // send a command and wait for an answer, which is left in readBuffer
+    // returns true if the answer is not empty
+    private boolean sendAndWaitForAnswer(String command, int waitMillis)
     {
         // empty incoming buffer
         // just make sure there is no previous response
-        try {
-            while(BluetoothManager.getInstance().available()>0)
-            {
-                BluetoothManager.getInstance().read();
-            }
-        } catch (IOException e) {
-            // ignore
-        }
+        getTransport().skip('\0');
         // send the command
         if(command!=null)
             // prefix fir EOM to make sure the previous command is done!
-            BluetoothManager.getInstance().write("\r\n"+command + "\r\n");
+            getTransport().write("\r\n"+command + "\r\n");
         //MainActivity.debug("Send > "+command);
         // wait if needed
         if(waitMillis>0)
@@ -96,38 +93,23 @@ public class BobDue extends Device {
                 e.printStackTrace();
             }
         // init the buffer
-        boolean stop = false;
-        String readBuffer = "";
-        // wait for answer
-        long start = Calendar.getInstance().getTimeInMillis();
-        while(!stop && Calendar.getInstance().getTimeInMillis()-start<TIMEOUT)
+        readBuffer.setLength(0);
+        // wait for answer, skipping empty lines (e.g. the echoed EOM prefix)
+        long end = Calendar.getInstance().getTimeInMillis() + TIMEOUT;
+        while(getTransport().readLine(readBuffer, end, EOMS) >= 0)
         {
-            //MainActivity.debug("Delta = "+(Calendar.getInstance().getTimeInMillis()-start));
-            try {
-                // read a byte
-                if(BluetoothManager.getInstance().available()>0) {
-                    //MainActivity.debug("Reading ...");
-                    int data = BluetoothManager.getInstance().read();
-                    //MainActivity.debug("... done");
-                    // if it is a real one
-                    if (data != -1) {
-                        // convert it to a character
-                        char ch = (char) data;
-                        // add it to the readBuffer
-                        readBuffer += ch;
-                        // stop if we reached the end or if no more data is available
-                        if ((ch == EOM || BluetoothManager.getInstance().available() <= 0) &&
-                                !readBuffer.trim().isEmpty())  stop = true;
-                    }
-                }
-            }
-            catch (IOException e)
-            {
-                e.printStackTrace();
-            }
+            if(!isBlank(readBuffer)) return true;
         }
         //MainActivity.debug("Recv < "+readBuffer);
-        return readBuffer;
+        return !isBlank(readBuffer);
+    }
+
+    private static boolean isBlank(CharSequence text)
+    {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') return false;
+        }
+        return true;
     }
 
     private int wrongCount = 0;
@@ -141,9 +123,9 @@ public class BobDue extends Device {
     @Override
     public Message requestFreeFrame(Field field) {
         // send the command and wait fir an answer, no delay
-        String data = sendAndWaitForAnswer("g" + field.getHexId(), 0);
+        boolean answered = sendAndWaitForAnswer("g" + field.getHexId(), 0);
         // handle empty answer
-        if(data.trim().isEmpty()) wrongCount++;
+        if(!answered) wrongCount++;
         if(wrongCount>WRONG_THRESHOLD) {
             wrongCount=0;
             (new Thread(new Runnable() {
@@ -154,16 +136,16 @@ public class BobDue extends Device {
                 }
             })).start();
         }
-        return responseToMessage(field,data);
+        return responseToMessage(field);
     }
 
     @Override
     public Message requestIsoTpFrame(Field field) {
         // build the command string to send to the remote device
         String command = "i" + field.getHexId() + "," + field.getRequestId() + "," + field.getResponseId();
-        String data = sendAndWaitForAnswer(command, 0);
+        boolean answered = sendAndWaitForAnswer(command, 0);
         // handle empty answer
-        if(data.trim().isEmpty()) wrongCount++;
+        if(!answered) wrongCount++;
         if(wrongCount>WRONG_THRESHOLD) {
             wrongCount=0;
             (new Thread(new Runnable() {
@@ -175,18 +157,32 @@ public class BobDue extends Device {
             })).start();
         }
         // send and wait fir an answer, no delay
-        return responseToMessage(field,data);
+        return responseToMessage(field);
     }
 
-    private Message responseToMessage(Field field, String text)
+    private Message responseToMessage(Field field)
     {
-        // split up the fields
-        String[] pieces = text.trim().split(",");
-        if(pieces.length>1)
-            return new Message(field,pieces[1].trim());
+        // the answer is <id>,<payload>, decode the payload right out of the buffer
+        int comma = -1;
+        for (int i = 0; i < readBuffer.length() && comma < 0; i++) {
+            if (readBuffer.charAt(i) == ',') comma = i;
+        }
+        int count = 0;
+        if (comma >= 0) {
+            int i = comma + 1;
+            while (i < readBuffer.length() && readBuffer.charAt(i) <= ' ') i++;
+            for (; i + 1 < readBuffer.length() && count < responseBytes.length; i += 2) {
+                int high = Character.digit(readBuffer.charAt(i), 16);
+                int low = Character.digit(readBuffer.charAt(i + 1), 16);
+                if (high < 0 || low < 0) break;
+                responseBytes[count++] = (byte) ((high << 4) | low);
+            }
+        }
+        if(count>0)
+            return new Message(field, responseBytes, count);
         else
         {
-            MainActivity.debug("BobDue: Got > "+text.trim());
+            MainActivity.debug("BobDue: Got > "+readBuffer.toString().trim());
             return null;
         }
     }
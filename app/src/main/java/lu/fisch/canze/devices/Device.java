@@ -22,9 +22,6 @@
 package lu.fisch.canze.devices;
 
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
-import java.util.Comparator;
 
 import lu.fisch.canze.activities.MainActivity;
 import lu.fisch.canze.actors.Field;
@@ -32,7 +29,9 @@ import lu.fisch.canze.actors.Fields;
 import lu.fisch.canze.actors.Message;
 import lu.fisch.canze.actors.VirtualField;
 import lu.fisch.canze.bluetooth.BluetoothManager;
+import lu.fisch.canze.classes.CaptureWriter;
 import lu.fisch.canze.database.CanzeDataSource;
+import lu.fisch.canze.interfaces.Transport;
 
 /**
  * This class defines an abstract device. It has to manage the device related
@@ -44,6 +43,30 @@ import lu.fisch.canze.database.CanzeDataSource;
 
 public abstract class Device {
 
+    /**
+     * The maximum number of free frames a device may capture in one go
+     */
+    protected static final int MAX_FREE_FRAME_BATCH = 8;
+
+    /**
+     * The maximum number of ISO-TP requests to the same ECU sent back to back
+     * while requests to other ECUs are due as well
+     */
+    private static final int MAX_SAME_ECU_RUN = 16;
+
+    /**
+     * The longest time (ms) the virtual fields may go without being computed,
+     * for a poller that is so busy its pass never completes
+     */
+    private static final int MAX_VIRTUAL_FIELD_AGE = 1000;
+
+    // the ECU of the last ISO-TP request and the length of the current run
+    private int lastEcuId = -1;
+    private int sameEcuRun = 0;
+
+    // the last time the virtual fields have been computed
+    private long lastVirtualFieldCompute = 0;
+
     private final double minIntervalMultiplicator = 1.3;
     private final double maxIntervalMultiplicator = 2.5;
     protected double intervalMultiplicator = minIntervalMultiplicator;
@@ -59,15 +82,16 @@ public abstract class Device {
      */
     protected final ArrayList<Field> fields = new ArrayList<>();
     /**
-     * Some fields will be custom, activity based
+     * Some fields will be custom, activity based. Fields are scheduled by
+     * request unit, so all fields carried by the same request share one entry.
      */
-    protected ArrayList<Field> activityFieldsScheduled = new ArrayList<>();
-    protected ArrayList<Field> activityFieldsAsFastAsPossible = new ArrayList<>();
+    protected RequestScheduler activityFieldsScheduled = new RequestScheduler();
+    protected ArrayList<RequestUnit> activityFieldsAsFastAsPossible = new ArrayList<>();
     /**
      * Some other fields will have to be queried anyway,
      * such as e.g. the speed --> safe mode driving
      */
-    protected ArrayList<Field> applicationFields = new ArrayList<>();
+    protected RequestScheduler applicationFields = new RequestScheduler();
 
     /**
      * The index of the actual field to query.
@@ -87,6 +111,12 @@ public abstract class Device {
      */
     boolean someThingWrong = false;
 
+    /**
+     * The channel to talk to the hardware over, the Bluetooth connection
+     * unless a simulator has been plugged in
+     */
+    private Transport transport = null;
+
     /**
      * lastInitProblem should be filled with a descriptive problem description by the initDevice implementation. In normal operation we don't care
      * because a device either initializes or not, but for testing a new device this can be very helpful.
@@ -97,6 +127,22 @@ public abstract class Device {
      * Abstract methods (to be implemented in each "real" device)
      \ -------------------------------------------------------------- */
 
+    public Transport getTransport()
+    {
+        if (transport == null) transport = BluetoothManager.getInstance();
+        return transport;
+    }
+
+    /**
+     * Talk over another transport than the Bluetooth connection, e.g. a
+     * simulator. Must be set before initConnection is called.
+     * @param transport     the transport to use
+     */
+    public void setTransport(Transport transport)
+    {
+        this.transport = transport;
+    }
+
     /**
      * A device may need some initialisation before data can be requested.
      */
@@ -104,7 +150,7 @@ public abstract class Device {
     {
         MainActivity.debug("Device: initConnection");
 
-        if(BluetoothManager.getInstance().isConnected()) {
+        if(getTransport().isConnected()) {
             MainActivity.debug("Device: BT connected");
             // make sure we only have one poller task
             if (pollerThread == null) {
@@ -120,7 +166,7 @@ public abstract class Device {
                             while (isPollerActive()) {
                                 MainActivity.debug("Device: inside poller thread");
                                 if (applicationFields.size()+activityFieldsScheduled.size()+activityFieldsAsFastAsPossible.size() == 0
-                                        || !BluetoothManager.getInstance().isConnected()) {
+                                        || !getTransport().isConnected()) {
                                     MainActivity.debug("Device: sleeping");
                                     try {
                                         if(isPollerActive())
@@ -196,9 +242,9 @@ public abstract class Device {
         {
             try {
 
-                Field field = getNextField();
+                RequestUnit unit = getNextRequest();
 
-                if(field == null) {
+                if(unit == null) {
                     MainActivity.debug("Device: got no next field --> sleeping");
                     // no next field ---> sleep
                     try {
@@ -210,19 +256,41 @@ public abstract class Device {
                 }
                 else
                 {
-                    long start = Calendar.getInstance().getTimeInMillis();
-                    MainActivity.debug("Device: queryNextFilter: " + field.getSID());
-
-                    // get the data
-                    Message message = requestField(field);
-                    // test if we got something
-                    if(message!=null && !someThingWrong) {
-                        Fields.getInstance().onMessageCompleteEvent(message);
+                    // built on every request, even when the log drops it
+                    //MainActivity.debug("Device: queryNextFilter: " + unit);
+
+                    // free frames that are due at the same time may be captured together
+                    Field requestField = unit.getField();
+                    ArrayList<Field> frameFields = requestField.isIsoTp() || requestField.isVirtual() ? null : getDueFreeFrames(unit);
+                    if(frameFields != null && frameFields.size() > 1) {
+                        ArrayList<Message> messages = requestFreeFrames(frameFields);
+                        for (int i = 0; i < messages.size() && !someThingWrong; i++) {
+                            // keep the raw response, if a capture is running
+                            CaptureWriter.getInstance().write(messages.get(i));
+                            Fields.getInstance().onMessageCompleteEvent(messages.get(i));
+                        }
+                    }
+                    else {
+                        // get the data, the answer is dispatched to all fields of the unit
+                        Message message = requestField(unit.getField());
+                        // test if we got something
+                        if (message != null && !someThingWrong) {
+                            CaptureWriter.getInstance().write(message);
+                            Fields.getInstance().onMessageCompleteEvent(message);
+                        }
+                    }
+
+                    // the virtual fields are computed once all requests of this pass are answered,
+                    // or when they are getting too old
+                    long now = System.currentTimeMillis();
+                    if (isPassComplete() || now - lastVirtualFieldCompute >= MAX_VIRTUAL_FIELD_AGE) {
+                        Fields.getInstance().computeVirtualFields();
+                        lastVirtualFieldCompute = now;
                     }
 
                     // reset if something went wrong ...
                     // ... but only if we are not asked to stop!
-                    if (someThingWrong && BluetoothManager.getInstance().isConnected()) {
+                    if (someThingWrong && getTransport().isConnected()) {
                         MainActivity.debug("Device: something went wrong!");
                         // we don't want to continue, so we need to stop the poller right now!
                         initDevice(1, 2);
@@ -236,54 +304,33 @@ public abstract class Device {
         }
     }
 
-    private Field getNextField()
+    private RequestUnit getNextRequest()
     {
-        long referenceTime = Calendar.getInstance().getTimeInMillis();
+        long referenceTime = System.currentTimeMillis();
 
         synchronized (fields) {
-            if(applicationFields.size()>0) {
-                // sort the applicationFields
-                Collections.sort(applicationFields, new Comparator<Field>() {
-                    @Override
-                    public int compare(Field lhs, Field rhs) {
-                        return (int) (lhs.getLastRequest()+lhs.getInterval() - (rhs.getLastRequest()+rhs.getInterval()));
-                    }
-                });
-
-
-                // get the first field (the one with the smallest lastRequest time
-                Field field = applicationFields.get(0);
-                // return it's index in the global registered field array
-                if(field.isDue(referenceTime)) {
-                    //MainActivity.debug(Calendar.getInstance().getTimeInMillis()/1000.+" > Chosing: "+field.getSID());
-                    MainActivity.debug("Device: getNextField > applicationFields");
-                    return field;
-                }
+            // the schedulers keep their units ordered by due time, so only
+            // the top of each one has to be checked. Application fields have
+            // priority over the activity ones.
+            RequestUnit unit = getSameEcuRequest(applicationFields, referenceTime);
+            if(unit == null) unit = applicationFields.peek();
+            if(unit != null && unit.isDue(referenceTime)) {
+                //MainActivity.debug(Calendar.getInstance().getTimeInMillis()/1000.+" > Chosing: "+unit);
+                MainActivity.debug("Device: getNextRequest > applicationFields");
+                return unit;
             }
             // take the next costum field
-            if(activityFieldsScheduled.size()>0)
-            {
-                // sort the activityFields
-                Collections.sort(activityFieldsScheduled, new Comparator<Field>() {
-                    @Override
-                    public int compare(Field lhs, Field rhs) {
-                        return (int) (lhs.getLastRequest()+lhs.getInterval() - (rhs.getLastRequest()+rhs.getInterval()));
-                    }
-                });
-
-                // get the first field (the one with the smallest lastRequest time
-                Field field = activityFieldsScheduled.get(0);
-                // return it's index in the global registered field array
-                if(field.isDue(referenceTime)) {
-                    //MainActivity.debug(Calendar.getInstance().getTimeInMillis()/1000.+" > Chosing: "+field.getSID());
-                    MainActivity.debug("Device: getNextField > activityFieldsScheduled");
-                    return field;
-                }
+            unit = getSameEcuRequest(activityFieldsScheduled, referenceTime);
+            if(unit == null) unit = activityFieldsScheduled.peek();
+            if(unit != null && unit.isDue(referenceTime)) {
+                //MainActivity.debug(Calendar.getInstance().getTimeInMillis()/1000.+" > Chosing: "+unit);
+                MainActivity.debug("Device: getNextRequest > activityFieldsScheduled");
+                return unit;
             }
             if(activityFieldsAsFastAsPossible.size()>0)
             {
                 activityFieldIndex = (activityFieldIndex + 1) % activityFieldsAsFastAsPossible.size();
-                MainActivity.debug("Device: getNextField > activityFieldsAsFastAsPossible");
+                MainActivity.debug("Device: getNextRequest > activityFieldsAsFastAsPossible");
                 return activityFieldsAsFastAsPossible.get(activityFieldIndex);
             }
 
@@ -294,6 +341,92 @@ public abstract class Device {
         }
     }
 
+    /**
+     * A pass is complete when no scheduled request is due anymore and the
+     * fields polled as fast as possible have all been requested once.
+     * @return  true if the virtual fields are to be computed now
+     */
+    private boolean isPassComplete()
+    {
+        long referenceTime = System.currentTimeMillis();
+
+        synchronized (fields) {
+            RequestUnit unit = applicationFields.peek();
+            if (unit != null && unit.isDue(referenceTime)) return false;
+            unit = activityFieldsScheduled.peek();
+            if (unit != null && unit.isDue(referenceTime)) return false;
+            return activityFieldIndex + 1 >= activityFieldsAsFastAsPossible.size();
+        }
+    }
+
+    /**
+     * Prefer a due ISO-TP request to the ECU that has been requested last, so
+     * the device can keep its addressing. To avoid starving the other ECUs, a
+     * run of requests to the same ECU is limited to MAX_SAME_ECU_RUN.
+     * @param scheduler     the scheduler to look in
+     * @param referenceTime the current time
+     * @return              a due request to the same ECU, or null
+     */
+    private RequestUnit getSameEcuRequest(RequestScheduler scheduler, long referenceTime)
+    {
+        RequestUnit top = scheduler.peek();
+        if (top == null || !top.isDue(referenceTime)) return null;
+
+        RequestUnit unit = null;
+        if (lastEcuId >= 0 && sameEcuRun < MAX_SAME_ECU_RUN)
+            unit = scheduler.peekDue(referenceTime, lastEcuId);
+        if (unit == null) unit = top;
+
+        Field field = unit.getField();
+        if (field.isIsoTp() && field.getId() == lastEcuId) {
+            sameEcuRun++;
+        } else {
+            lastEcuId = field.isIsoTp() ? field.getId() : -1;
+            sameEcuRun = 1;
+        }
+        return unit;
+    }
+
+    /**
+     * Collect the free frames that may be captured together with the given
+     * request: all other due scheduled free frames and the free frames on
+     * the "as fast as possible" list.
+     * @param first     the free frame request chosen by the scheduler
+     * @return          the request fields of the frames, the given one first
+     */
+    private ArrayList<Field> getDueFreeFrames(RequestUnit first)
+    {
+        ArrayList<Field> frameFields = new ArrayList<>();
+        frameFields.add(first.getField());
+
+        long referenceTime = System.currentTimeMillis();
+        synchronized (fields) {
+            addDueFreeFrames(frameFields, applicationFields, referenceTime);
+            addDueFreeFrames(frameFields, activityFieldsScheduled, referenceTime);
+            for (int i = 0; i < activityFieldsAsFastAsPossible.size(); i++)
+                addFreeFrame(frameFields, activityFieldsAsFastAsPossible.get(i));
+        }
+        return frameFields;
+    }
+
+    private void addDueFreeFrames(ArrayList<Field> frameFields, RequestScheduler scheduler, long referenceTime)
+    {
+        for (int i = 0; i < scheduler.size(); i++) {
+            RequestUnit unit = scheduler.get(i);
+            if (unit.isDue(referenceTime))
+                addFreeFrame(frameFields, unit);
+        }
+    }
+
+    private void addFreeFrame(ArrayList<Field> frameFields, RequestUnit unit)
+    {
+        Field field = unit.getField();
+        if (frameFields.size() >= MAX_FREE_FRAME_BATCH || field.isIsoTp() || field.isVirtual()) return;
+        for (int i = 0; i < frameFields.size(); i++)
+            if (frameFields.get(i).getId() == field.getId()) return;
+        frameFields.add(field);
+    }
+
     /**
      * Ass the CAN bus sends a lot of free frames, the device may want
      * to apply a filter. This method should thus register or apply a
@@ -356,7 +489,8 @@ public abstract class Device {
             activityFieldsScheduled.clear();
             activityFieldsAsFastAsPossible.clear();
             fields.clear();
-            fields.addAll(applicationFields);
+            for (int i = 0; i < applicationFields.size(); i++)
+                fields.add(applicationFields.get(i).getField());
             //MainActivity.debug("cleared");
             // launch the filter clearing asynchronously
             (new Thread(new Runnable() {
@@ -389,35 +523,46 @@ public abstract class Device {
 
     private boolean containsApplicationField(Field _field)
     {
-        for(int i=0; i< applicationFields.size(); i++)
-        {
-            Field field = applicationFields.get(i);
-            if(field.getId()==_field.getId() && field.getResponseId().equals(_field.getResponseId()))
-                return true;
-        }
-        return false;
+        return applicationFields.contains(_field);
     }
 
     private boolean containsActivityFieldScheduled(Field _field)
     {
-        for(int i=0; i< activityFieldsScheduled.size(); i++)
-        {
-            Field field = activityFieldsScheduled.get(i);
-            if(field.getId()==_field.getId() && field.getResponseId().equals(_field.getResponseId()))
-                return true;
-        }
-        return false;
+        return activityFieldsScheduled.contains(_field);
     }
 
     private boolean containsActivityFieldAsFastAsPossible(Field _field)
     {
+        return getActivityUnitAsFastAsPossible(_field) != null;
+    }
+
+    private RequestUnit getActivityUnitAsFastAsPossible(Field _field)
+    {
+        String key = RequestUnit.getKey(_field);
         for(int i=0; i< activityFieldsAsFastAsPossible.size(); i++)
         {
-            Field field = activityFieldsAsFastAsPossible.get(i);
-            if(field.getId()==_field.getId() && field.getResponseId().equals(_field.getResponseId()))
-                return true;
+            RequestUnit unit = activityFieldsAsFastAsPossible.get(i);
+            if(unit.getKey().equals(key))
+                return unit;
+        }
+        return null;
+    }
+
+    /**
+     * Remove the field carrying the same request as the given one from the
+     * list of monitored fields
+     * @param _field    the field
+     */
+    private void removeField(Field _field)
+    {
+        for(int i=0; i<fields.size(); i++)
+        {
+            Field field = fields.get(i);
+            if(field.getId()==_field.getId() && field.getResponseId().equals(_field.getResponseId())) {
+                fields.remove(i);
+                return;
+            }
         }
-        return false;
     }
 
     /**
@@ -435,13 +580,8 @@ public abstract class Device {
             synchronized (fields) {
 
                 if (!containsField(field)) {
-                    // add it to the lists
+                    // add it to the list
                     fields.add(field);
-                    activityFieldsAsFastAsPossible.add(field);
-                    // if the scheduled list constains the same frame id,
-                    // it can be removed there
-                    if (containsActivityFieldScheduled(field))
-                        activityFieldsScheduled.remove(field);
                     // launch the field registration asynchronously
                     (new Thread(new Runnable() {
                         @Override
@@ -450,13 +590,15 @@ public abstract class Device {
                         }
                     })).start();
                 }
-                if (!containsActivityFieldAsFastAsPossible(field)) {
-                    activityFieldsAsFastAsPossible.add(field);
-                    // if the scheduled list constains the same frame id,
+                RequestUnit unit = getActivityUnitAsFastAsPossible(field);
+                if (unit == null) {
+                    unit = new RequestUnit(field);
+                    activityFieldsAsFastAsPossible.add(unit);
+                    // if the scheduled list constains the same request,
                     // it can be removed there
-                    if (containsActivityFieldScheduled(field))
-                        activityFieldsScheduled.remove(field);
+                    activityFieldsScheduled.removeRequest(field);
                 }
+                unit.addField(field, 0);
             }
         }
         // register real fields on which a virtual field may depend
@@ -488,11 +630,8 @@ public abstract class Device {
             synchronized (fields) {
 
                 if (!containsField(field)) {
-                    // add it to the lists
+                    // add it to the list
                     fields.add(field);
-                    activityFieldsScheduled.add(field);
-                    // set the fields query interval
-                    field.setInterval(interval);
                     // launch the field registration asynchronously
                     (new Thread(new Runnable() {
                         @Override
@@ -501,18 +640,15 @@ public abstract class Device {
                         }
                     })).start();
                 }
-                if (!containsActivityFieldScheduled(field)) {
-                    // only add it this field id is not yet on the list of the
-                    // request as fast as possible list.
-                    if (!containsActivityFieldAsFastAsPossible(field))
-                        activityFieldsScheduled.add(field);
-                    // the fields interval will be ignored as the one from the
-                    // applicationFields has priority
-                } else {
-                    // the smallest intervall is the one to take
-                    if (interval < field.getInterval())
-                        field.setInterval(interval);
-                }
+                // only schedule it if the request is not yet on the list of the
+                // request as fast as possible list.
+                RequestUnit unit = getActivityUnitAsFastAsPossible(field);
+                if (unit != null)
+                    unit.addField(field, 0);
+                else
+                    // if the request is already scheduled, the field joins its
+                    // unit and the smallest intervall is the one to take
+                    activityFieldsScheduled.add(field, interval);
             }
         }
         // register real fields on which a virtual field may depend
@@ -536,11 +672,8 @@ public abstract class Device {
         if(!field.isVirtual()) {
             synchronized (fields) {
                 if (!containsField(field)) {
-                    // set the fields query interval
-                    field.setInterval(interval);
-                    // add it to the two lists
+                    // add it to the list
                     fields.add(field);
-                    applicationFields.add(field);
                     // launch the field registration asynchronously
                     (new Thread(new Runnable() {
                         @Override
@@ -549,6 +682,8 @@ public abstract class Device {
                         }
                     })).start();
                 }
+                // the field joins the unit of its request, if there is one already
+                applicationFields.add(field, interval);
             }
         }
         // register real fields on which a virtual field may depend
@@ -600,8 +735,9 @@ public abstract class Device {
             {
                 // remove it from the database if it is not on the other list
                 if(!containsActivityFieldScheduled(field)) {
-                    fields.remove(field);
-                    field.setInterval(Integer.MAX_VALUE);
+                    // the request is no longer needed if no one else uses it
+                    if(!containsApplicationField(field) && !containsActivityFieldAsFastAsPossible(field))
+                        removeField(field);
                     // un-register it ...
                     field.removeListener(CanzeDataSource.getInstance());
                 }
@@ -693,17 +829,11 @@ public abstract class Device {
             if (field.isIsoTp()) msg = requestIsoTpFrame(field);
             else msg = requestFreeFrame(field);
 
-            if (msg == null || msg.getData().isEmpty()) {
+            if (msg == null || msg.isEmpty()) {
                 MainActivity.debug("Device: request for " + field.getSID() + " is empty ...");
-                // theory: when the answer is empty, the timeout is to low --> increase it!
-                // jm: but never beyond 2
-                if (intervalMultiplicator < maxIntervalMultiplicator) intervalMultiplicator += 0.1;
-                MainActivity.debug("Device: intervalMultiplicator = " + intervalMultiplicator);
+                adaptIntervalMultiplicator(false);
             } else {
-                // theory: when the answer is good, we might recover slowly --> decrease it!
-                // jm: but never below 1 ----> 2015-12-14 changed 10 1.3
-                if (intervalMultiplicator > minIntervalMultiplicator) intervalMultiplicator -= 0.01;
-                MainActivity.debug("Device: intervalMultiplicator = " + intervalMultiplicator);
+                adaptIntervalMultiplicator(true);
             }
         }
         else
@@ -712,6 +842,41 @@ public abstract class Device {
         return msg;
     }
 
+    /**
+     * Adapt the timeout multiplicator after a request
+     * @param answered  true if the request got an answer
+     */
+    protected void adaptIntervalMultiplicator(boolean answered)
+    {
+        if (!answered) {
+            // theory: when the answer is empty, the timeout is to low --> increase it!
+            // jm: but never beyond 2
+            if (intervalMultiplicator < maxIntervalMultiplicator) intervalMultiplicator += 0.1;
+        } else {
+            // theory: when the answer is good, we might recover slowly --> decrease it!
+            // jm: but never below 1 ----> 2015-12-14 changed 10 1.3
+            if (intervalMultiplicator > minIntervalMultiplicator) intervalMultiplicator -= 0.01;
+        }
+        //MainActivity.debug("Device: intervalMultiplicator = " + intervalMultiplicator);
+    }
+
+    /**
+     * Request a group of free frames at once. Devices able to capture several
+     * frames in one go should override this, by default the frames are
+     * requested one by one.
+     * @param frameFields   one request field per frame
+     * @return              the messages of the frames that have been captured
+     */
+    public ArrayList<Message> requestFreeFrames(ArrayList<Field> frameFields)
+    {
+        ArrayList<Message> messages = new ArrayList<>();
+        for (int i = 0; i < frameFields.size() && !someThingWrong; i++) {
+            Message message = requestField(frameFields.get(i));
+            if (message != null) messages.add(message);
+        }
+        return messages;
+    }
+
     /**
      * Request a free-frame type field from the device
      * @param field
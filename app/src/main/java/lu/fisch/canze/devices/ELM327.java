@@ -21,15 +21,15 @@
 
 package lu.fisch.canze.devices;
 
-import java.io.IOException;
-import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.HashMap;
 
 import lu.fisch.canze.activities.MainActivity;
 import lu.fisch.canze.actors.Ecu;
 import lu.fisch.canze.actors.Ecus;
 import lu.fisch.canze.actors.Field;
 import lu.fisch.canze.actors.Message;
-import lu.fisch.canze.bluetooth.BluetoothManager;
+import lu.fisch.canze.interfaces.Transport;
 
 /**
  * Created by robertfisch on 07.09.2015.
@@ -50,19 +50,51 @@ public class ELM327 extends Device {
     private static final char EOM1 = '\r';
     private static final char EOM2 = '>';
     private static final char EOM3 = '?';
+    private static final String EOMS = "" + EOM1 + EOM2 + EOM3;
 
     private int timeoutLogLevel = MainActivity.toastLevel; // 0 = none, 1=only ELM issues, 2=elm and car issues
 
     /**
-     * the index of the actual field to request
+     * The addressing state of the ELM: what it has been told last about the
+     * protocol, the header and flow control header of ISO-TP requests and the
+     * ATCRA receive filter. A command setting a value that is already in place
+     * is not sent again, so consecutive requests to the same ECU only pay the
+     * addressing once. null means unknown and forces the next command out.
+     * Everything is forgotten by initDevice and when a command times out.
      */
-    private int lastId = 0;
+    private String protocol = null;
+    private String header = null;
+    private String flowControlHeader = null;
+    private String receiveFilter = null;
+    // the receive filter value after an ATAR
+    private static final String NO_FILTER = "";
 
     /**
-     *
-     *
+     * true when the ELM prefixes each line with the CAN id (ATH1). This is
+     * needed to demultiplex several free frames captured in one ATMA session.
      */
-    private boolean lastCommandWasFreeFrame = false;
+    private boolean headersOn = false;
+
+    /**
+     * Not every ELM clone understands wildcards in ATCRA. If it rejects one
+     * with a ?, free frames are captured one by one until the next init.
+     */
+    private boolean freeFrameBatchSupported = true;
+
+    /**
+     * Reusable buffers, so reading and decoding a response doesn't produce
+     * garbage on the poll hot path. An ISO-TP payload is at most 4095 bytes.
+     */
+    private final StringBuilder lineBuffer = new StringBuilder(1024);
+    private final byte[] responseBytes = new byte[4096];
+
+    /**
+     * The strings sent for ISO-TP requests, built once: the ECU to CAN id in
+     * hex, indexed by the from CAN id, and the single frame command with its
+     * terminator, by request id.
+     */
+    private final String[] requestHexIds = new String[0x800];
+    private final HashMap<String, String> isoTpCommands = new HashMap<>();
 
     @Override
     public void registerFilter(int frameId) {
@@ -158,8 +190,12 @@ public class ELM327 extends Device {
 
         lastInitProblem = "";
 
-        // ensure the dongle header field is set again
-        lastId = 0;
+        // ensure the dongle addressing is set again
+        invalidateAddressing();
+        // it may be another dongle, so check the wildcard support again
+        freeFrameBatchSupported = true;
+        // a warm start turns the headers off
+        headersOn = false;
 
         // extremely soft, just clear the global error condition
         if (toughness == 100){
@@ -237,7 +273,7 @@ public class ELM327 extends Device {
         }
 
         // atsp6 (CAN 500K 11 bit)
-        if (!initCommandExpectOk("atsp6")) {
+        if (!setProtocol("6")) {
             lastInitProblem = "ATSP6 command problem";
             return false;
         }
@@ -255,7 +291,7 @@ public class ELM327 extends Device {
         }
 
         // atfcsh79b        Set flow control response ID to 79b (the LBC) This is needed to set the flow control response, but that one is remembered :-)
-        if (!initCommandExpectOk("atfcsh77b")) {
+        if (!setFlowControlHeader("77b")) {
             lastInitProblem = "ATFCSH77B command problem";
             return false;
         }
@@ -302,10 +338,57 @@ public class ELM327 extends Device {
             }
         }
 
+        // the reset cleared any receive filter
+        receiveFilter = NO_FILTER;
+
         someThingWrong = false;
         return true;
     }
 
+    /* --------------------------------
+     * Addressing state
+     \ ------------------------------ */
+
+    private void invalidateAddressing()
+    {
+        protocol = null;
+        header = null;
+        flowControlHeader = null;
+        receiveFilter = null;
+    }
+
+    // atsp (protocol)
+    private boolean setProtocol(String value)
+    {
+        if (value.equals(protocol)) return true;
+        protocol = initCommandExpectOk("atsp" + value) ? value : null;
+        return protocol != null;
+    }
+
+    // atsh (header of the outgoing requests)
+    private boolean setHeader(String value)
+    {
+        if (value.equals(header)) return true;
+        header = initCommandExpectOk("atsh" + value) ? value : null;
+        return header != null;
+    }
+
+    // atfcsh (header of the flow control frames)
+    private boolean setFlowControlHeader(String value)
+    {
+        if (value.equals(flowControlHeader)) return true;
+        flowControlHeader = initCommandExpectOk("atfcsh" + value) ? value : null;
+        return flowControlHeader != null;
+    }
+
+    // atcra (receive filter), NO_FILTER clears it with atar
+    private boolean setReceiveFilter(String value)
+    {
+        if (value.equals(receiveFilter)) return true;
+        receiveFilter = initCommandExpectOk(value.equals(NO_FILTER) ? "atar" : "atcra" + value) ? value : null;
+        return receiveFilter != null;
+    }
+
     void flushWithTimeout (int timeout) {
         flushWithTimeout(timeout, '\0');
     }
@@ -313,34 +396,18 @@ public class ELM327 extends Device {
     void flushWithTimeout (int timeout, char eom) {
         // empty incoming buffer
         // just make sure there is no previous response
-        try {
-            // fast track, don't use expenive calendar.....
-            if (timeout == 0) {
-                while (BluetoothManager.getInstance().isConnected() && BluetoothManager.getInstance().available() > 0) {
-                    BluetoothManager.getInstance().read();
-                }
-            } else {
-                long end = Calendar.getInstance().getTimeInMillis() + timeout;
-                while (Calendar.getInstance().getTimeInMillis() < end) {
-                    // read a byte
-                    if (!BluetoothManager.getInstance().isConnected()) return;
-                    if (BluetoothManager.getInstance().available() > 0) {
-                        // absorb the characters
-                        while (BluetoothManager.getInstance().available() > 0) {
-                            int c = BluetoothManager.getInstance().read();
-                            if (c == (int)eom) return;
-
-                        }
-                        // restart the timer
-                        end = Calendar.getInstance().getTimeInMillis() + timeout;
-                    } else {
-                        // let the system breath if there was no data
-                        Thread.sleep(5);
-                    }
-                }
+        Transport bluetoothManager = getTransport();
+        if (timeout == 0) {
+            if (bluetoothManager.isConnected()) bluetoothManager.skip('\0');
+        } else {
+            long end = System.currentTimeMillis() + timeout;
+            // wait until the line has been quiet for the timeout
+            while (bluetoothManager.isConnected() && bluetoothManager.waitForData(end)) {
+                // absorb the characters
+                if (bluetoothManager.skip(eom)) return;
+                // restart the timer
+                end = System.currentTimeMillis() + timeout;
             }
-        } catch (IOException | InterruptedException e) {
-            // ignore
         }
     }
 
@@ -371,9 +438,9 @@ public class ELM327 extends Device {
     }
 
     private void sendNoWait(String command) {
-        if(!BluetoothManager.getInstance().isConnected()) return;
+        if(!getTransport().isConnected()) return;
         if(command!=null) {
-            BluetoothManager.getInstance().write(command);
+            getTransport().write(command);
         }
     }
 
@@ -396,18 +463,27 @@ public class ELM327 extends Device {
 
     // send a command and wait for an answer
     private String sendAndWaitForAnswer(String command, int waitMillis, boolean untilEmpty, int answerLinesCount, boolean addReturn)
+    {
+        if (!readAnswer(command, waitMillis, untilEmpty, answerLinesCount, addReturn)) return "";
+        return lineBuffer.toString();
+    }
+
+    // send a command and read the answer into lineBuffer. Returns false on a timeout.
+    private boolean readAnswer(String command, int waitMillis, boolean untilEmpty, int answerLinesCount, boolean addReturn)
     {
 
         int maxUntilEmptyCounter = 10;
         int maxLengthCounter = 500; // char = nibble, so 2000 bits
 
-        if(!BluetoothManager.getInstance().isConnected()) return "";
+        lineBuffer.setLength(0);
+
+        if(!getTransport().isConnected()) return false;
 
         if(command!=null) {
             flushWithTimeout (10);
             // send the command
             //connectedBluetoothThread.write(command + "\r\n");
-            BluetoothManager.getInstance().write(command + (addReturn ? "\r" : ""));
+            getTransport().write(addReturn ? command + "\r" : command);
         }
 
         //MainActivity.debug("Send > "+command);
@@ -421,100 +497,105 @@ public class ELM327 extends Device {
         }
         // init the buffer
         boolean stop = false;
-        String readBuffer = "";
+        Transport bluetoothManager = getTransport();
         // wait for answer
-        long end = Calendar.getInstance().getTimeInMillis() + TIMEOUT;
+        long end = System.currentTimeMillis() + TIMEOUT;
         boolean timedOut = false;
         while(!stop && !timedOut)
         {
-            //MainActivity.debug("Delta = "+(Calendar.getInstance().getTimeInMillis()-start));
-            try {
-                // read a byte
-                if(BluetoothManager.getInstance().isConnected() && BluetoothManager.getInstance().available()>0) {
-                    //MainActivity.debug("Reading ...");
-                    int data = BluetoothManager.getInstance().read();
-                    //MainActivity.debug("... done");
-                    // if it is a real one
-                    if (data != -1) {
-                        // we might be JUST approaching the TIMEOUT, so give it a chance to get to the EOM,
-                        // end = end + 2;
-                        // convert it to a character
-                        char ch = (char) data;
-                        // add it to the readBuffer
-                        readBuffer += ch;
-                        // if we reach the end of a line
-                        if (ch == EOM1 || ch == EOM2 || ch == EOM3)
-                        {
-                            //MainActivity.debug("ALC: "+answerLinesCount+")\n"+readBuffer);
-                            // decrease awaiting answer lines
-                            answerLinesCount--;
-                            // if we not asked to keep on and we got enough lines, stop
-                            if(!untilEmpty){
-                                if(answerLinesCount<=0) { // the number of lines is in
-                                    MainActivity.debug("ELM327: sendAndWaitForAnswer > stop on decimal char [" + data + "]");
-                                    stop = true; // so quit
-                                }
-                                else // the number of lines is NOT in
-                                {
-                                    end = Calendar.getInstance().getTimeInMillis() + TIMEOUT; // so restart the timeout
-                                }
-                            }
-                            else { // if (untilEmpty) {
-                                stop=(BluetoothManager.getInstance().available()==0);
-                                // a problem here is that we assume the next character is already available, which might not be the case, so adding.....
-                                if (stop) {
-                                    // wait a fraction
-                                    try {
-                                        Thread.sleep(5);
-                                    } catch (InterruptedException e) {
-                                        // do nothing
-                                    }
-                                    stop=(BluetoothManager.getInstance().available()==0);
-                                } else {
-                                    if (--maxUntilEmptyCounter <= 0) timedOut = true; // well, this is a timed"In", as in, too many lines
-                                }
-                            }
-                        } else {
-                            if (--maxLengthCounter <= 0) timedOut = true; // well, this is a timed"In", as in, too many lines
-                        }
-
+            // read a whole line, the reader thread wakes us up as soon as it is in
+            int lengthBefore = lineBuffer.length();
+            int data = bluetoothManager.isConnected() ? bluetoothManager.readLine(lineBuffer, end, EOMS) : -1;
+            if (data < 0) {
+                timedOut = true;
+                // MainActivity.toast("Sum Ting Wong on command " + command);
+            } else {
+                // count the characters before the end of the line
+                maxLengthCounter -= lineBuffer.length() - lengthBefore - 1;
+                if (maxLengthCounter <= 0) timedOut = true; // well, this is a timed"In", as in, too many lines
+
+                //MainActivity.debug("ALC: "+answerLinesCount+")\n"+lineBuffer);
+                // decrease awaiting answer lines
+                answerLinesCount--;
+                // if we not asked to keep on and we got enough lines, stop
+                if(!untilEmpty){
+                    if(answerLinesCount<=0) { // the number of lines is in
+                        //MainActivity.debug("ELM327: sendAndWaitForAnswer > stop on decimal char [" + data + "]");
+                        stop = true; // so quit
                     }
-                }
-                else
-                {
-                    // let the system breath if there was no data
-                    try {
-                        Thread.sleep(10);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
+                    else // the number of lines is NOT in
+                    {
+                        end = System.currentTimeMillis() + TIMEOUT; // so restart the timeout
                     }
                 }
-
-                if (Calendar.getInstance().getTimeInMillis() > end) {
-                    timedOut = true;
-                    // MainActivity.toast("Sum Ting Wong on command " + command);
+                else { // if (untilEmpty) {
+                    // a problem here is that we assume the next character is already available, which might not be the case, so give it a fraction
+                    stop = !bluetoothManager.waitForData(System.currentTimeMillis() + 5);
+                    if (!stop) {
+                        if (--maxUntilEmptyCounter <= 0) timedOut = true; // well, this is a timed"In", as in, too many lines
+                    }
                 }
-
-            }
-            catch (IOException e)
-            {
-                // ignore: e.printStackTrace();
             }
         }
-
         // set the flag that a timeout has occurred. someThingWrong can be inspected anywhere, but we reset the device after a full filter has been run
         if (timedOut) {
+            String readBuffer = lineBuffer.toString();
             if (timeoutLogLevel >= 2 || (timeoutLogLevel >= 1 && (command==null || (!command.startsWith("atma") && command.startsWith("at"))))) {
                 MainActivity.toast("Timeout on [" + command + "][" + readBuffer.replace("\r", "<cr>").replace(" ", "<sp>") + "]");
             }
             MainActivity.debug("ELM327: sendAndWaitForAnswer > timed out on [" + command + "][" + readBuffer.replace("\r", "<cr>").replace(" ", "<sp>") + "]");
             someThingWrong |= true;
-            return ("");
+            // we don't know what the ELM made of the command
+            if (command != null) invalidateAddressing();
+            lineBuffer.setLength(0);
+            return false;
         }
 
-        //MainActivity.debug("ALC: "+answerLinesCount+" && Stop: "+stop+" && Delta: "+(Calendar.getInstance().getTimeInMillis()-start));
-        //MainActivity.debug("Recv < "+readBuffer);
-        return readBuffer;
+        //MainActivity.debug("ALC: "+answerLinesCount+" && Stop: "+stop+" && Delta: "+(System.currentTimeMillis()-start));
+        //MainActivity.debug("Recv < "+lineBuffer);
+        return true;
+    }
+
+    /* --------------------------------
+     * Response parsing
+     \ ------------------------------ */
+
+    // skip the noise in front of a line (prompts, line ends and spaces)
+    private int skipNoise(CharSequence buffer, int from)
+    {
+        while (from < buffer.length()) {
+            char ch = buffer.charAt(from);
+            if (ch != EOM1 && ch != EOM2 && ch != ' ' && ch != '\n') break;
+            from++;
+        }
+        return from;
+    }
+
+    // find the end of the line starting at the given position
+    private int lineEnd(CharSequence buffer, int from)
+    {
+        while (from < buffer.length() && EOMS.indexOf(buffer.charAt(from)) < 0) from++;
+        return from;
+    }
+
+    /**
+     * Decode hex digit pairs from the buffer straight into responseBytes,
+     * stopping at the given end or at the first character that is not hex
+     * @param buffer    the characters
+     * @param from      the first character to decode
+     * @param to        the end of the characters to decode
+     * @param count     the number of bytes already in responseBytes
+     * @return          the new number of bytes in responseBytes
+     */
+    private int parseHex(CharSequence buffer, int from, int to, int count)
+    {
+        for (int i = from; i + 1 < to && count < responseBytes.length; i += 2) {
+            int high = Character.digit(buffer.charAt(i), 16);
+            int low = Character.digit(buffer.charAt(i + 1), 16);
+            if (high < 0 || low < 0) break;
+            responseBytes[count++] = (byte) ((high << 4) | low);
+        }
+        return count;
     }
 
     private int getRequestId(int responseId)
@@ -543,7 +624,24 @@ public class ELM327 extends Device {
 
     private String getRequestHexId(int responseId)
     {
-        return Integer.toHexString(getRequestId(responseId));
+        if (responseId < 0 || responseId >= requestHexIds.length) return Integer.toHexString(getRequestId(responseId));
+        String hexId = requestHexIds[responseId];
+        if (hexId == null) {
+            hexId = Integer.toHexString(getRequestId(responseId));
+            requestHexIds[responseId] = hexId;
+        }
+        return hexId;
+    }
+
+    // the ISO-TP single frame carrying the request, terminator included
+    private String getIsoTpCommand(String requestId)
+    {
+        String command = isoTpCommands.get(requestId);
+        if (command == null) {
+            command = "0" + requestId.length() / 2 + requestId + "\r";
+            isoTpCommands.put(requestId, command);
+        }
+        return command;
     }
 
     @Override
@@ -555,21 +653,19 @@ public class ELM327 extends Device {
     @Override
     public Message requestFreeFrame(Field field) {
 
-        String hexData = "";
+        boolean answered = false;
 
         MainActivity.debug("ELM327: requestFreeFrame: " + field.getSID());
 
         if (someThingWrong) { return null ; }
 
-        // ensure the ATCRA filter is reset in the next NON free frame request
-        lastCommandWasFreeFrame = true;
-
         // EML needs the filter to be 3 symbols and contains the from CAN id of the ECU
         String emlFilter = field.getHexId() + "";
         while (emlFilter.length() < 3) emlFilter = "0" + emlFilter;
 
+        // the filter stays in place until the next NON free frame request
         MainActivity.debug("ELM327: requestFreeFrame: atcra" + emlFilter);
-        if (!initCommandExpectOk("atcra" + emlFilter)) someThingWrong |= true;
+        if (!setReceiveFilter(emlFilter)) someThingWrong |= true;
 
         // avoid starting an ATMA id the ATCRA failed
         if (!someThingWrong) {
@@ -579,9 +675,9 @@ public class ELM327 extends Device {
             if (TIMEOUT < MINIMUM_TIMEOUT) TIMEOUT = MINIMUM_TIMEOUT;
             MainActivity.debug("ELM327: requestFreeFrame > TIMEOUT = "+TIMEOUT);
 
-            hexData = sendAndWaitForAnswer("atma", 20);
+            answered = readAnswer("atma", 20, false, -1, true);
 
-            MainActivity.debug("ELM327: requestFreeFrame > hexData = [" + hexData + "]");
+            MainActivity.debug("ELM327: requestFreeFrame > hexData = [" + lineBuffer + "]");
             // the dongle starts babbling now. sendAndWaitForAnswer should stop at the first full line
             // ensure any running operation is stopped
             // sending a return might restart the last command. Bad plan.
@@ -597,11 +693,127 @@ public class ELM327 extends Device {
         // frames to isotp frames.
         // if (!initCommandExpectOk("atar")) someThingWrong |= true;
 
-        hexData = hexData.trim();
-        if(hexData.equals(""))
+        // the flush above only consumed the socket, lineBuffer still holds the atma line
+        if (!answered) return null;
+        int start = skipNoise(lineBuffer, 0);
+        // a previous batch capture may have left the headers on, so cut off the CAN id
+        if (headersOn) start = skipNoise(lineBuffer, start + 3);
+        int count = parseHex(lineBuffer, start, lineEnd(lineBuffer, start), 0);
+        if (count == 0)
             return null;
         else
-            return new Message(field, hexData);
+            return new Message(field, responseBytes, count);
+    }
+
+    @Override
+    public ArrayList<Message> requestFreeFrames(ArrayList<Field> frameFields) {
+
+        ArrayList<Message> messages = new ArrayList<>();
+
+        if (someThingWrong) { return messages; }
+
+        if (!freeFrameBatchSupported) return super.requestFreeFrames(frameFields);
+
+        // only frames sharing the first nibble are captured together, a wider
+        // filter would let too much traffic through. The others stay due and
+        // are taken in the next round.
+        int first = frameFields.get(0).getId();
+        ArrayList<Field> pending = new ArrayList<>();
+        int diff = 0;
+        int timeout = MINIMUM_TIMEOUT;
+        for (Field field : frameFields) {
+            if ((field.getId() >> 8) != (first >> 8)) continue;
+            pending.add(field);
+            diff |= field.getId() ^ first;
+            int frameTimeout = (int) (field.getFrequency() * intervalMultiplicator + 50);
+            if (frameTimeout > timeout) timeout = frameTimeout;
+        }
+        if (pending.size() == 1) return super.requestFreeFrames(pending);
+
+        MainActivity.debug("ELM327: requestFreeFrames: " + pending.size() + " frames");
+
+        // set one receive address covering all frames, using X for every nibble that differs
+        String emlFilter = "";
+        for (int shift = 8; shift >= 0; shift -= 4) {
+            emlFilter += ((diff >> shift) & 0xf) != 0 ? "X" : Integer.toHexString((first >> shift) & 0xf);
+        }
+        MainActivity.debug("ELM327: requestFreeFrames: atcra" + emlFilter);
+        if (!setReceiveFilter(emlFilter)) {
+            // the failed answer is still in lineBuffer. Only a ? means the ELM doesn't
+            // know wildcards, after a timeout or garbage the next round tries again
+            if (lineBuffer.indexOf("" + EOM3) >= 0) {
+                MainActivity.debug("ELM327: requestFreeFrames: no wildcard support, falling back to single frames");
+                freeFrameBatchSupported = false;
+            }
+            return super.requestFreeFrames(frameFields);
+        }
+
+        // we need the CAN id on each line to know which frame it is
+        if (!headersOn) {
+            if (!initCommandExpectOk("ath1")) {
+                someThingWrong |= true;
+                return messages;
+            }
+            headersOn = true;
+        }
+
+        // atma, then demultiplex the stream by CAN id until all frames are in or the deadline has passed
+        long deadline = System.currentTimeMillis() + timeout;
+        String command = "atma";
+        // running into the deadline is expected when a frame is missing, so don't toast about it
+        int savedTimeoutLogLevel = timeoutLogLevel;
+        timeoutLogLevel = 0;
+        boolean deadlineReached = false;
+        while (!pending.isEmpty()) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) break;
+            TIMEOUT = (int) left;
+            boolean answered = readAnswer(command, command == null ? 0 : 20, false, -1, true);
+            command = null;
+            if (!answered) {
+                // the ELM going quiet until the deadline, not too much traffic or a lost connection
+                deadlineReached = System.currentTimeMillis() >= deadline;
+                break;
+            }
+            if (someThingWrong) break;
+            int start = skipNoise(lineBuffer, 0);
+            // the ELM didn't take the atma
+            if (start < lineBuffer.length() && lineBuffer.charAt(start) == EOM3) {
+                someThingWrong = true;
+                break;
+            }
+            int end = lineEnd(lineBuffer, start);
+            if (end - start <= 3) continue;
+
+            int id = 0;
+            for (int i = start; i < start + 3 && id >= 0; i++) {
+                int digit = Character.digit(lineBuffer.charAt(i), 16);
+                // not a frame, e.g. BUFFER FULL
+                id = digit < 0 ? -1 : (id << 4) | digit;
+            }
+            if (id < 0) continue;
+            for (int i = 0; i < pending.size(); i++) {
+                if (pending.get(i).getId() == id) {
+                    int count = parseHex(lineBuffer, skipNoise(lineBuffer, start + 3), end, 0);
+                    if (count > 0) messages.add(new Message(pending.remove(i), responseBytes, count));
+                    break;
+                }
+            }
+        }
+        timeoutLogLevel = savedTimeoutLogLevel;
+        MainActivity.debug("ELM327: requestFreeFrames > captured " + messages.size() + ", missed " + pending.size());
+
+        // a frame missing at the deadline is not a problem of the ELM, as long as others came in.
+        // Only the timeout of the deadline is forgiven, any other error still resets the ELM
+        if (deadlineReached && !messages.isEmpty()) someThingWrong = false;
+        adaptIntervalMultiplicator(pending.isEmpty());
+
+        // stop the monitoring and let it settle down, the ELM should indicate STOPPED then prompt >
+        sendNoWait("x");
+        flushWithTimeout(100, '>');
+        TIMEOUT = DEFAULT_TIMEOUT;
+
+        return messages;
     }
 
     @Override
@@ -609,76 +821,80 @@ public class ELM327 extends Device {
 
         if (someThingWrong) { return null ; }
 
-        String hexData = "";
         int len = 0;
 
         // PERFORMANCE ENHANCEMENT: only send ATAR if coming from a free frame
-        if (lastCommandWasFreeFrame) {
-            // atar     (clear filter set by free frame capture method)
-            if (!initCommandExpectOk("atar")){
+        // atar     (clear filter set by free frame capture method)
+        if (!setReceiveFilter(NO_FILTER)){
+            someThingWrong |= true;
+            return null;
+        }
+
+        // the ISO-TP decoding expects the lines without CAN id
+        if (headersOn) {
+            if (!initCommandExpectOk("ath0")){
                 someThingWrong |= true;
                 return null;
             }
-            lastCommandWasFreeFrame = false;
+            headersOn = false;
         }
 
-        // PERFORMANCE ENHANCEMENT II: lastId contains the CAN id of the previous ISO-TP command. If the current ID is the same, no need to re-address that ECU
-        lastId = 0;
-        if (lastId != field.getId()) {
-            lastId = field.getId();
+        // PERFORMANCE ENHANCEMENT II: the addressing state remembers the header of the previous ISO-TP command. If it is the same ECU, no need to re-address it
+        // request contains the to CAN id of the ECU
+        String request = getRequestHexId(field.getId());
 
-            // request contains the to CAN id of the ECU
-            String request = getRequestHexId(field.getId());
-
-            // Set header
-            if (!initCommandExpectOk("atsh" + request)) someThingWrong |= true;
-            // Set flow control response ID
-            if (!initCommandExpectOk("atfcsh" + request)) someThingWrong |= true;
-
-        }
+        // Set header
+        if (!setHeader(request)) someThingWrong |= true;
+        // Set flow control response ID
+        if (!setFlowControlHeader(request)) someThingWrong |= true;
 
         // 022104           ISO-TP single frame - length 2 - payload 2104, which means PID 21 (??), id 04 (see first tab).
-        String pre = "0" + field.getRequestId().length() / 2;
-        //MainActivity.debug("R: "+request+" - C: "+pre+field.getRequestId());
+        String command = getIsoTpCommand(field.getRequestId());
+        //MainActivity.debug("R: "+request+" - C: "+command);
 
         // get 0x1 frame. No delays, and no waiting until done.
-        String line0x1 = sendAndWaitForAnswer(pre + field.getRequestId(), 0, false).replace("\r", "");
+        int count = 0;
+        readAnswer(command, 0, false, -1, false);
 
+        // process first line (SINGLE or FIRST frame), clean-up if there is mess around
+        int start = skipNoise(lineBuffer, 0);
         if (!someThingWrong) {
-            // process first line (SINGLE or FIRST frame)
-            line0x1 = line0x1.trim();
-            // clean-up if there is mess around
-            if (line0x1.startsWith(">")) line0x1 = line0x1.substring(1);
-            someThingWrong |= line0x1.isEmpty();
+            someThingWrong |= start + 2 > lineBuffer.length();
         }
         if (!someThingWrong) {
             // get type (first nibble)
-            String type = line0x1.substring(0, 1);
-
-            switch (type) {
-                case "0": // SINGLE frame
-                    len = Integer.parseInt(line0x1.substring(1, 2), 16);
-                    // remove 2 nibbles (type + length)
-                    hexData = line0x1.substring(2);
+            switch (lineBuffer.charAt(start)) {
+                case '0': // SINGLE frame
+                    len = Character.digit(lineBuffer.charAt(start + 1), 16);
+                    // skip 2 nibbles (type + length)
+                    count = parseHex(lineBuffer, start + 2, lineEnd(lineBuffer, start), 0);
                     break;
-                case "1": // FIRST frame
-                    len = Integer.parseInt(line0x1.substring(1, 4), 16);
-                    // remove 4 nibbles (type + length)
-                    hexData = line0x1.substring(4);
+                case '1': // FIRST frame
+                    int end = lineEnd(lineBuffer, start);
+                    if (end - start < 4) {
+                        someThingWrong = true;
+                        break;
+                    }
+                    for (int i = start + 1; i < start + 4; i++) {
+                        len = (len << 4) | Character.digit(lineBuffer.charAt(i), 16);
+                    }
+                    // skip 4 nibbles (type + length)
+                    count = parseHex(lineBuffer, start + 4, end, 0);
                     // calculate the # of frames to come. 6 byte are in and each of the 0x2 frames has a payload of 7 bytes
                     int framesToReceive = (int) Math.ceil((len - 6) / 7.);
                     // get remaining 0x2 (NEXT) frames
-                    String lines0x1 = sendAndWaitForAnswer(null, 0, framesToReceive);
-                    // split into lines
-                    String[] hexDataLines = lines0x1.split(String.valueOf(EOM1));
-
-                    for (String hexDataLine : hexDataLines) {
-                        line0x1 = hexDataLine;
-                        //MainActivity.debug("Line "+(i+1)+": " + line);
-                        if (!line0x1.isEmpty() && line0x1.length() > 2) {
+                    readAnswer(null, 0, false, framesToReceive, true);
+                    // walk the lines
+                    // always step past the terminator, a '?' is not skipped as noise
+                    for (int i = skipNoise(lineBuffer, 0); i < lineBuffer.length(); i = skipNoise(lineBuffer, end + 1)) {
+                        end = lineEnd(lineBuffer, i);
+                        // the ELM answers '?' to garbled input
+                        if (end < lineBuffer.length() && lineBuffer.charAt(end) == EOM3) someThingWrong = true;
+                        //MainActivity.debug("Line: " + lineBuffer.subSequence(i, end));
+                        if (end - i > 2) {
                             // cut off the first byte (type + sequence)
                             // adding sequence checking would be wise to detect collisions
-                            hexData += line0x1.substring(2);
+                            count = parseHex(lineBuffer, i + 2, end, count);
                         }
                     }
                     break;
@@ -694,16 +910,15 @@ public class ELM327 extends Device {
         // the following ATMA immediately overwhelmed the ELM as no filter was set.
         // As a solution, added this wait for a > after an ISO-TP command.
 
-        flushWithTimeout(400, '>');
-        len *= 2;
+        getTransport().waitFor('>', System.currentTimeMillis() + 400);
 
-        // Having less data than specified in length is actually an error, but at least we do not need so substr it
+        // Having less data than specified in length is actually an error, but at least we do not need to cut it
         // if there is more data than specified in length, that is OK (filler bytes in the last frame), so cut those away
-        hexData = (hexData.length() <= len) ? hexData.trim() : hexData.substring(0, len).trim();
+        if (count > len) count = len;
 
-        if (hexData.equals(""))
+        if (count <= 0)
             return null;
         else
-            return new Message(field, hexData);
+            return new Message(field, responseBytes, count);
     }
 }
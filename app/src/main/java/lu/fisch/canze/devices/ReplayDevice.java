@@ -0,0 +1,358 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.devices;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import lu.fisch.canze.activities.MainActivity;
+import lu.fisch.canze.actors.Field;
+import lu.fisch.canze.actors.Message;
+import lu.fisch.canze.classes.CaptureReader;
+import lu.fisch.canze.interfaces.Transport;
+
+/**
+ * A device answering the requests with the responses of a capture (see
+ * CaptureWriter) instead of talking to a car, so the whole decoding
+ * pipeline (fields, virtual fields, listeners, database) can be run and
+ * measured on recorded traffic.
+ *
+ * The capture is replayed on its own clock, in real time, sped up or as
+ * fast as possible. A request is answered with the newest response of its
+ * frame (and ISO-TP response id) at the replay clock. If that one has been
+ * served already, the request waits for the next one, or as fast as
+ * possible the clock jumps to it.
+ */
+public class ReplayDevice extends Device {
+
+    public static final double AS_FAST_AS_POSSIBLE = 0;
+    public static final double REAL_TIME = 1;
+
+    // what answering a frame that is not in the capture costs, like a dongle answering NO DATA
+    private static final long NO_DATA_PAUSE = 50;  // ms
+
+    // the responses of each frame, by key
+    private final HashMap<String, Track> tracks = new HashMap<>();
+    private final long captureStart;
+    private final long captureEnd;
+
+    private double speed = REAL_TIME;
+    private boolean loop = false;
+
+    // the replay clock is at replayOffset (capture time) at replayStart (wall time)
+    private long replayStart = -1;
+    private long replayOffset;
+    private long clock;
+
+    private long served = 0;
+
+    /**
+     * @param capture   the capture file to replay, it is read at once
+     */
+    public ReplayDevice(File capture) throws IOException
+    {
+        CaptureReader reader = new CaptureReader(capture);
+        long last;
+        try {
+            last = reader.getStartMoment();
+            while (reader.next()) {
+                String key = getKey(reader.getFrameId(), reader.getResponseId());
+                Track track = tracks.get(key);
+                if (track == null) {
+                    track = new Track();
+                    tracks.put(key, track);
+                }
+                byte[] payload = new byte[reader.getLength()];
+                System.arraycopy(reader.getPayload(), 0, payload, 0, payload.length);
+                track.add(reader.getMoment(), payload);
+                last = reader.getMoment();
+            }
+        } finally {
+            reader.close();
+        }
+        captureStart = reader.getStartMoment();
+        captureEnd = last;
+        replayOffset = captureStart;
+        clock = captureStart;
+
+        // there is no hardware, but the poller only runs while connected
+        setTransport(new ReplayTransport());
+        MainActivity.debug("ReplayDevice: " + tracks.size() + " frames from " + capture);
+    }
+
+    /* --------------------------------
+     * Replay control
+     \ ------------------------------ */
+
+    /**
+     * @param speed     REAL_TIME, a factor like 10 for ten times as fast, or AS_FAST_AS_POSSIBLE
+     */
+    public synchronized void setSpeed(double speed)
+    {
+        // carry on from where the clock is now
+        if (replayStart >= 0) {
+            replayOffset = getClock();
+            replayStart = System.currentTimeMillis();
+        }
+        this.speed = Math.max(AS_FAST_AS_POSSIBLE, speed);
+    }
+
+    public synchronized double getSpeed()
+    {
+        return speed;
+    }
+
+    /**
+     * @param loop  start over at the end of the capture instead of running dry
+     */
+    public synchronized void setLoop(boolean loop)
+    {
+        this.loop = loop;
+    }
+
+    /**
+     * @return  the moment of the capture (ms) the replay is at
+     */
+    public synchronized long getClock()
+    {
+        if (replayStart >= 0 && speed != AS_FAST_AS_POSSIBLE)
+            clock = replayOffset + (long) ((System.currentTimeMillis() - replayStart) * speed);
+        return clock;
+    }
+
+    public synchronized boolean isFinished()
+    {
+        return !loop && getClock() > captureEnd;
+    }
+
+    /**
+     * @return  the number of responses served so far
+     */
+    public synchronized long getServed()
+    {
+        return served;
+    }
+
+    /* --------------------------------
+     * Device
+     \ ------------------------------ */
+
+    @Override
+    public void registerFilter(int frameId) {
+        // all frames of the capture are there anyway
+    }
+
+    @Override
+    public void unregisterFilter(int frameId) {
+        // all frames of the capture are there anyway
+    }
+
+    @Override
+    public Message requestFreeFrame(Field field) {
+        return respond(field);
+    }
+
+    @Override
+    public Message requestIsoTpFrame(Field field) {
+        return respond(field);
+    }
+
+    @Override
+    public boolean initDevice(int toughness) {
+        return initDevice(toughness, 1);
+    }
+
+    @Override
+    protected synchronized boolean initDevice(int toughness, int retries) {
+        // the clock starts with the first poll
+        if (replayStart < 0) replayStart = System.currentTimeMillis();
+        someThingWrong = false;
+        return true;
+    }
+
+    /* --------------------------------
+     * Internals
+     \ ------------------------------ */
+
+    private Message respond(Field field)
+    {
+        Track track = tracks.get(getKey(field.getId(), field.isIsoTp() ? field.getResponseId() : ""));
+        if (track == null) return noData(field);
+
+        byte[] payload = null;
+        long wait = 0;
+        boolean finished = false;
+        synchronized (this) {
+            if (replayStart < 0) replayStart = System.currentTimeMillis();
+            if (track.next >= track.size && loop) restart();
+            if (track.next >= track.size) {
+                // this frame has run dry, but maybe not the whole capture
+                finished = isFinished() || isServed();
+            } else {
+                // skip the responses the clock has passed, but keep the newest one
+                long now = getClock();
+                int i = track.next;
+                while (i + 1 < track.size && track.moments[i + 1] <= now) i++;
+                if (track.moments[i] > now) {
+                    if (speed == AS_FAST_AS_POSSIBLE) clock = track.moments[i];
+                    else wait = (long) ((track.moments[i] - now) / speed);
+                }
+                track.next = i + 1;
+                payload = track.payloads[i];
+                served++;
+            }
+        }
+        if (finished) {
+            // there is nothing left to poll for
+            MainActivity.debug("ReplayDevice: capture finished, " + getServed() + " responses served");
+            setPollerActive(false);
+            return null;
+        }
+        if (payload == null) return noData(field);
+
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                return null;
+            }
+        }
+        return new Message(field, payload, payload.length);
+    }
+
+    // no answer will come for this field, so don't ask again before its next interval
+    private Message noData(Field field)
+    {
+        field.updateLastRequest();
+        try {
+            Thread.sleep(NO_DATA_PAUSE);
+        } catch (InterruptedException e) {
+            // stopped
+        }
+        return null;
+    }
+
+    // must be called holding the lock
+    private boolean isServed()
+    {
+        for (Track track : tracks.values())
+            if (track.next < track.size) return false;
+        return true;
+    }
+
+    // must be called holding the lock
+    private void restart()
+    {
+        for (Track track : tracks.values()) track.next = 0;
+        replayOffset = captureStart;
+        replayStart = System.currentTimeMillis();
+        clock = captureStart;
+    }
+
+    private static String getKey(int frameId, String responseId)
+    {
+        return responseId == null || responseId.isEmpty() ? Integer.toString(frameId) : frameId + "." + responseId;
+    }
+
+    /**
+     * The responses of one frame, in the order they have been captured
+     */
+    private static class Track
+    {
+        long[] moments = new long[16];
+        byte[][] payloads = new byte[16][];
+        int size = 0;
+        // the first response not served yet
+        int next = 0;
+
+        void add(long moment, byte[] payload)
+        {
+            if (size == moments.length) {
+                long[] newMoments = new long[size * 2];
+                byte[][] newPayloads = new byte[size * 2][];
+                System.arraycopy(moments, 0, newMoments, 0, size);
+                System.arraycopy(payloads, 0, newPayloads, 0, size);
+                moments = newMoments;
+                payloads = newPayloads;
+            }
+            moments[size] = moment;
+            payloads[size] = payload;
+            size++;
+        }
+    }
+
+    /**
+     * Always connected, but nothing to talk to
+     */
+    private static class ReplayTransport implements Transport
+    {
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public void write(String message) {
+        }
+
+        @Override
+        public int read(byte[] buffer) {
+            return 0;
+        }
+
+        @Override
+        public int read() {
+            return -1;
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        @Override
+        public boolean waitForData(long deadline) {
+            return false;
+        }
+
+        @Override
+        public int readLine(StringBuilder line, long deadline, String terminators) {
+            return -1;
+        }
+
+        @Override
+        public String readLine(long deadline, String terminators) {
+            return null;
+        }
+
+        @Override
+        public boolean waitFor(char stop, long deadline) {
+            return false;
+        }
+
+        @Override
+        public boolean skip(char stop) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.devices;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import lu.fisch.canze.actors.Field;
+import lu.fisch.canze.interfaces.ScheduleListener;
+
+/**
+ * Indexed min-heap of request units, ordered by the moment they are due for
+ * their next request (last request + interval).
+ *
+ * Fields are added to the unit of the request carrying them, so the cost of
+ * scheduling only depends on the number of distinct requests and not on the
+ * number of subscribed fields.
+ *
+ * The unit on top can be peeked in O(1). Adding, removing and rescheduling
+ * is done in O(log n). The scheduler registers itself as schedule listener
+ * on the request field of every unit, so a unit whose field gets updated
+ * (e.g. by Field.updateLastRequest) is moved to its new position right away.
+ */
+public class RequestScheduler implements ScheduleListener {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // the heap itself
+    private RequestUnit[] heap = new RequestUnit[INITIAL_CAPACITY];
+    // the due time of each heap entry, as it was when the entry was last (re)scheduled
+    private long[] due = new long[INITIAL_CAPACITY];
+    // position of each unit inside the heap
+    private final IdentityHashMap<RequestUnit, Integer> positions = new IdentityHashMap<>();
+    // the units by request key and by request field
+    private final HashMap<String, RequestUnit> unitsByKey = new HashMap<>();
+    private final IdentityHashMap<Field, RequestUnit> unitsByField = new IdentityHashMap<>();
+    private int size = 0;
+
+    /* --------------------------------
+     * Heap management
+     \ ------------------------------ */
+
+    /**
+     * Subscribe a field to the scheduler. If the request carrying this field
+     * is already scheduled, the field simply joins the existing unit.
+     * @param field     the field to be added
+     * @param interval  the interval the field wants to be updated with
+     * @return          the unit the field has been added to
+     */
+    public RequestUnit add(Field field, int interval)
+    {
+        RequestUnit unit;
+        boolean created = false;
+        synchronized (this) {
+            unit = unitsByKey.get(RequestUnit.getKey(field));
+            if (unit == null) {
+                unit = new RequestUnit(field);
+                unit.addField(field, interval);
+                push(unit);
+                created = true;
+            } else if (unit.addField(field, interval)) {
+                reschedule(unit);
+            }
+        }
+        // register outside of the lock, fields call back into the scheduler
+        if (created) unit.getField().addScheduleListener(this);
+        return unit;
+    }
+
+    /**
+     * Unsubscribe a field from the scheduler. The unit is dropped as soon as
+     * no more fields are subscribed to it.
+     * @param field     the field to be removed
+     * @return          true if the field was subscribed
+     */
+    public boolean remove(Field field)
+    {
+        RequestUnit unit;
+        Field requestField;
+        synchronized (this) {
+            unit = unitsByKey.get(RequestUnit.getKey(field));
+            if (unit == null) return false;
+            requestField = unit.getField();
+            if (!unit.removeField(field)) return false;
+            if (unit.isEmpty()) {
+                pop(unit);
+            } else {
+                if (unit.getField() != requestField) {
+                    // another field of the unit issues the request now
+                    unitsByField.remove(requestField);
+                    unitsByField.put(unit.getField(), unit);
+                }
+                reschedule(unit);
+            }
+        }
+        // (un)register outside of the lock, fields call back into the scheduler
+        if (unit.getField() != requestField) {
+            requestField.removeScheduleListener(this);
+            unit.getField().addScheduleListener(this);
+        } else if (unit.isEmpty()) {
+            requestField.removeScheduleListener(this);
+        }
+        return true;
+    }
+
+    /**
+     * Drop the whole unit of the request carrying the given field
+     * @param field     a field carried by the request
+     * @return          true if the request was scheduled
+     */
+    public boolean removeRequest(Field field)
+    {
+        RequestUnit unit;
+        synchronized (this) {
+            unit = unitsByKey.get(RequestUnit.getKey(field));
+            if (unit == null) return false;
+            pop(unit);
+        }
+        unit.getField().removeScheduleListener(this);
+        return true;
+    }
+
+    /**
+     * @return  the unit that is due first, or null if the scheduler is empty
+     */
+    public synchronized RequestUnit peek()
+    {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * Look for a due ISO-TP request to the given ECU, so requests to the same
+     * ECU can be sent back to back. Only the due part of the heap is visited.
+     * @param referenceTime the current time
+     * @param ecuId         the id of the ECU
+     * @return              a due unit requesting the given ECU, or null
+     */
+    public synchronized RequestUnit peekDue(long referenceTime, int ecuId)
+    {
+        return findDue(0, referenceTime, ecuId);
+    }
+
+    /**
+     * @param field     the field
+     * @return          true if the request carrying the given field is scheduled
+     */
+    public synchronized boolean contains(Field field)
+    {
+        return unitsByKey.containsKey(RequestUnit.getKey(field));
+    }
+
+    /**
+     * Direct access to the scheduled units, in heap (not due) order
+     * @param index     the index in the heap
+     * @return          the unit at the given position
+     */
+    public synchronized RequestUnit get(int index)
+    {
+        return heap[index];
+    }
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    public void clear()
+    {
+        Field[] requestFields;
+        synchronized (this) {
+            requestFields = unitsByField.keySet().toArray(new Field[unitsByField.size()]);
+            for (int i = 0; i < size; i++) heap[i] = null;
+            positions.clear();
+            unitsByKey.clear();
+            unitsByField.clear();
+            size = 0;
+        }
+        for (Field field : requestFields) field.removeScheduleListener(this);
+    }
+
+    @Override
+    public void onScheduleChangeEvent(Field field) {
+        synchronized (this) {
+            RequestUnit unit = unitsByField.get(field);
+            if (unit != null) reschedule(unit);
+        }
+    }
+
+    /* --------------------------------
+     * Internals
+     \ ------------------------------ */
+
+    private RequestUnit findDue(int position, long referenceTime, int ecuId)
+    {
+        // the children of an entry that is not due aren't due either
+        if (position >= size || due[position] > referenceTime) return null;
+        Field field = heap[position].getField();
+        if (field.isIsoTp() && field.getId() == ecuId) return heap[position];
+        RequestUnit unit = findDue((position << 1) + 1, referenceTime, ecuId);
+        return unit != null ? unit : findDue((position << 1) + 2, referenceTime, ecuId);
+    }
+
+    private void push(RequestUnit unit)
+    {
+        if (size == heap.length) grow();
+
+        heap[size] = unit;
+        due[size] = unit.getDueTime();
+        positions.put(unit, size);
+        unitsByKey.put(unit.getKey(), unit);
+        unitsByField.put(unit.getField(), unit);
+        siftUp(size++);
+    }
+
+    private void pop(RequestUnit unit)
+    {
+        int position = positions.remove(unit);
+        unitsByKey.remove(unit.getKey());
+        unitsByField.remove(unit.getField());
+
+        int last = --size;
+        if (position != last) {
+            RequestUnit moved = heap[last];
+            move(last, position);
+            // the moved entry can go either way
+            siftDown(position);
+            siftUp(positions.get(moved));
+        }
+        heap[last] = null;
+    }
+
+    private void reschedule(RequestUnit unit)
+    {
+        Integer position = positions.get(unit);
+        if (position == null) return;
+
+        long oldDue = due[position];
+        due[position] = unit.getDueTime();
+        if (due[position] < oldDue) siftUp(position);
+        else siftDown(position);
+    }
+
+    private void siftUp(int position)
+    {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (due[parent] <= due[position]) break;
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position)
+    {
+        while (true) {
+            int left = (position << 1) + 1;
+            if (left >= size) break;
+            int right = left + 1;
+            int smallest = (right < size && due[right] < due[left]) ? right : left;
+            if (due[position] <= due[smallest]) break;
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b)
+    {
+        RequestUnit unit = heap[a];
+        long time = due[a];
+        heap[a] = heap[b];
+        due[a] = due[b];
+        heap[b] = unit;
+        due[b] = time;
+        positions.put(heap[a], a);
+        positions.put(heap[b], b);
+    }
+
+    private void move(int from, int to)
+    {
+        heap[to] = heap[from];
+        due[to] = due[from];
+        positions.put(heap[to], to);
+    }
+
+    private void grow()
+    {
+        RequestUnit[] newHeap = new RequestUnit[heap.length * 2];
+        long[] newDue = new long[due.length * 2];
+        System.arraycopy(heap, 0, newHeap, 0, size);
+        System.arraycopy(due, 0, newDue, 0, size);
+        heap = newHeap;
+        due = newDue;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.devices;
+
+import java.util.ArrayList;
+
+import lu.fisch.canze.actors.Field;
+
+/**
+ * A request unit is what the poller actually sends to the car: one frame
+ * (free frame) or one ISO-TP request to one ECU. All fields that are carried
+ * by the same answer share the same unit, so the unit is requested only once
+ * and Fields.onMessageCompleteEvent fans the answer out to all of them.
+ */
+public class RequestUnit {
+
+    private final String key;
+    // the field used to issue the request and to build the message, one of the subscribed fields
+    private Field field;
+    // all the fields that subscribed to this request, with their wanted interval at the same index
+    private final ArrayList<Field> fields = new ArrayList<>();
+    private int[] intervals = new int[4];
+    private int interval = Integer.MAX_VALUE;
+
+    public RequestUnit(Field field)
+    {
+        this.key = getKey(field);
+        this.field = field;
+    }
+
+    /**
+     * Fields are carried by the same request if they come from the same frame
+     * and are asked for with the same request id (empty for free frames).
+     * @param field     the field
+     * @return          the key of the request carrying this field
+     */
+    public static String getKey(Field field)
+    {
+        return field.getHexId() + "." + (field.getRequestId() == null ? "" : field.getRequestId().trim());
+    }
+
+    /* --------------------------------
+     * Subscribed fields
+     \ ------------------------------ */
+
+    /**
+     * Subscribe a field to this request. The request is done at the smallest
+     * interval asked for by any of its fields.
+     * @param field     the field
+     * @param interval  the interval the field wants to be updated with
+     * @return          true if the interval of the unit has changed
+     */
+    public boolean addField(Field field, int interval)
+    {
+        int index = indexOf(field);
+        if (index < 0) {
+            if (fields.size() == intervals.length) {
+                int[] newIntervals = new int[intervals.length * 2];
+                System.arraycopy(intervals, 0, newIntervals, 0, intervals.length);
+                intervals = newIntervals;
+            }
+            intervals[fields.size()] = interval;
+            fields.add(field);
+        } else if (interval < intervals[index]) {
+            intervals[index] = interval;
+        }
+        return updateInterval();
+    }
+
+    /**
+     * Unsubscribe a field from this request. The interval drops back to the
+     * smallest one of the fields left, and if the field was the one issuing
+     * the request, another subscribed field takes over.
+     * @param field     the field
+     * @return          true if the field was subscribed
+     */
+    public boolean removeField(Field field)
+    {
+        int index = indexOf(field);
+        if (index < 0) return false;
+        fields.remove(index);
+        System.arraycopy(intervals, index + 1, intervals, index, fields.size() - index);
+        if (field == this.field && !fields.isEmpty()) this.field = fields.get(0);
+        updateInterval();
+        return true;
+    }
+
+    public boolean isEmpty()
+    {
+        return fields.isEmpty();
+    }
+
+    public ArrayList<Field> getFields()
+    {
+        return fields;
+    }
+
+    private int indexOf(Field field)
+    {
+        for (int i = 0; i < fields.size(); i++)
+            if (fields.get(i) == field) return i;
+        return -1;
+    }
+
+    private boolean updateInterval()
+    {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < fields.size(); i++)
+            if (intervals[i] < min) min = intervals[i];
+        boolean changed = (min != interval);
+        interval = min;
+        return changed;
+    }
+
+    /* --------------------------------
+     * Scheduling
+     \ ------------------------------ */
+
+    /**
+     * The request field gets its last request time updated by
+     * Fields.onMessageCompleteEvent, together with all other fields
+     * carried by the same answer.
+     * @return  the moment this unit is due for its next request
+     */
+    public long getDueTime()
+    {
+        // use a long to avoid the overflow of the former int based comparator
+        return field.getLastRequest() + interval;
+    }
+
+    public boolean isDue(long referenceTime)
+    {
+        return getDueTime() < referenceTime;
+    }
+
+    /* --------------------------------
+     * Getters & setters
+     \ ------------------------------ */
+
+    public String getKey() {
+        return key;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    @Override
+    public String toString()
+    {
+        return key + " (" + fields.size() + " fields)";
+    }
+}
@@ -0,0 +1,36 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+/*
+ * This class represents a schedule listener.
+ */
+package lu.fisch.canze.interfaces;
+
+import lu.fisch.canze.actors.Field;
+
+/**
+ * Notified whenever the moment a field is due for its next request changes,
+ * i.e. when its last request time or its interval is updated.
+ */
+public interface ScheduleListener {
+    public void onScheduleChangeEvent(Field field);
+}
@@ -0,0 +1,95 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.interfaces;
+
+import java.io.IOException;
+
+/**
+ * The byte channel a device talks over. The Bluetooth connection is the real
+ * one, simulators implement it to run the devices without car and dongle.
+ */
+public interface Transport {
+
+    public boolean isConnected();
+
+    /**
+     * Send a message
+     * @param message   the characters to send
+     */
+    public void write(String message);
+
+    /**
+     * Read the available bytes, without waiting for more
+     * @param buffer    the buffer to fill
+     * @return          the number of bytes read
+     */
+    public int read(byte[] buffer) throws IOException;
+
+    /**
+     * Read one byte, blocking until there is one
+     * @return  the byte, or -1 if the connection is closed
+     */
+    public int read() throws IOException;
+
+    public int available() throws IOException;
+
+    /**
+     * Wait until some data is available
+     * @param deadline  the moment (in ms) to give up
+     * @return          true if data is available
+     */
+    public boolean waitForData(long deadline);
+
+    /**
+     * Read characters into the given buffer up to and including the first
+     * terminator, blocking until it arrives or the deadline has passed. The
+     * characters read so far stay in the buffer in both cases.
+     * @param line          the buffer to append the characters to
+     * @param deadline      the moment (in ms) to give up
+     * @param terminators   the characters ending a line
+     * @return              the terminator found, or -1 on timeout
+     */
+    public int readLine(StringBuilder line, long deadline, String terminators);
+
+    /**
+     * Read a line, including its terminator
+     * @param deadline      the moment (in ms) to give up
+     * @param terminators   the characters ending a line
+     * @return              the line, or null on timeout
+     */
+    public String readLine(long deadline, String terminators);
+
+    /**
+     * Discard everything up to and including the given character
+     * @param stop      the character to wait for
+     * @param deadline  the moment (in ms) to give up
+     * @return          true if the character has been found
+     */
+    public boolean waitFor(char stop, long deadline);
+
+    /**
+     * Discard the available data, without waiting for more
+     * @param stop  stop after this character, '\0' to discard everything
+     * @return      true if the stop character has been found
+     */
+    public boolean skip(char stop);
+}
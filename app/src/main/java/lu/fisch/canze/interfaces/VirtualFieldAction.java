@@ -1,13 +1,14 @@
 package lu.fisch.canze.interfaces;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
 import lu.fisch.canze.actors.Field;
 
 /**
  * Created by robertfisch on 15.11.2015.
  */
 public interface VirtualFieldAction {
-    double updateValue(HashMap<String,Field> dependantFields);
+    /**
+     * @param dependantFields   the fields the virtual field depends on, in the order they have been declared
+     * @return                  the raw value of the virtual field
+     */
+    double updateValue(Field[] dependantFields);
 }
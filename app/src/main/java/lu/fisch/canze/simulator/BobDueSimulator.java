@@ -0,0 +1,77 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.simulator;
+
+/**
+ * Simulated Bob Due. It answers "g<id>" with the last value of a free frame
+ * and "i<id>,<request>,<response id>" with the response of an ECU, both as
+ * "<id>,<payload>". Filter commands are accepted silently.
+ */
+public class BobDueSimulator extends SimulatedTransport {
+
+    private final SimulatedCar car;
+
+    public BobDueSimulator(SimulatedCar car)
+    {
+        this.car = car;
+    }
+
+    public SimulatedCar getCar()
+    {
+        return car;
+    }
+
+    @Override
+    protected void reset()
+    {
+        // the Bob Due has no state worth simulating
+    }
+
+    @Override
+    protected void handle(String command) throws InterruptedException
+    {
+        // the empty lines in front of each command
+        if (command.trim().isEmpty()) return;
+
+        String[] pieces = command.trim().split(",");
+        char type = pieces[0].charAt(0);
+        String id = pieces[0].substring(1);
+        if ((type == 'f' || type == 'r') || !isHex(id)) return;
+
+        delay();
+        if (type == 'g' && pieces.length == 1) {
+            send(id + "," + car.getFreeFrame(Integer.parseInt(id, 16)) + "\n");
+        } else if (type == 'i' && pieces.length == 3) {
+            String response = car.getResponseFrom(Integer.parseInt(id, 16), pieces[1]);
+            send(id + "," + (response != null ? response : "") + "\n");
+        }
+    }
+
+    private static boolean isHex(String text)
+    {
+        if (text.isEmpty()) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+}
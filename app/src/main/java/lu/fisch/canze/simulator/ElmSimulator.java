@@ -0,0 +1,258 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.simulator;
+
+/**
+ * Simulated ELM327 on the CAN bus of a car. It understands the AT commands
+ * the ELM327 device uses (atws, ate, ats, ath, atsp, atat, atcaf, atsh,
+ * atfcsh, atfcsd, atfcsm, atcra, atar and atma) and answers ISO-TP requests
+ * with single or first and consecutive frames, honouring the separation time
+ * set by atfcsd.
+ *
+ * With the headers on, ATMA lines are prefixed with the CAN id. ISO-TP
+ * answers never are, as the device only requests them with the headers off.
+ */
+public class ElmSimulator extends SimulatedTransport {
+
+    private static final String VERSION = "ELM327 v1.5";
+    private static final String PROMPT = "\r>";
+
+    private final SimulatedCar car;
+
+    private boolean echo;
+    private boolean spaces;
+    private boolean headers;
+    private int header;
+    // the ATCRA filter, lower case with x as wildcard, null if not set
+    private String receiveFilter;
+    private int separationTime;
+
+    public ElmSimulator(SimulatedCar car)
+    {
+        this.car = car;
+    }
+
+    public SimulatedCar getCar()
+    {
+        return car;
+    }
+
+    @Override
+    protected void reset()
+    {
+        echo = true;
+        spaces = true;
+        headers = false;
+        header = 0x7df;
+        receiveFilter = null;
+        separationTime = 0;
+    }
+
+    @Override
+    protected void handle(String line) throws InterruptedException
+    {
+        if (echo) send(line + "\r");
+        // the ELM ignores spaces and case
+        String command = line.replace(" ", "").toLowerCase();
+        delay();
+
+        if (command.startsWith("at")) {
+            handleAt(command.substring(2));
+        } else if (command.length() >= 2 && isHex(command)) {
+            handleRequest(command);
+        } else if (command.isEmpty()) {
+            send(PROMPT);
+        } else {
+            send("?\r" + PROMPT);
+        }
+    }
+
+    private void handleAt(String command) throws InterruptedException
+    {
+        if (command.equals("ws") || command.equals("z")) {
+            reset();
+            send("\r\r" + VERSION + "\r" + PROMPT);
+        } else if (command.equals("d")) {
+            reset();
+            ok();
+        } else if (command.equals("i")) {
+            send(VERSION + "\r" + PROMPT);
+        } else if (command.equals("e0") || command.equals("e1")) {
+            echo = command.endsWith("1");
+            ok();
+        } else if (command.equals("s0") || command.equals("s1")) {
+            spaces = command.endsWith("1");
+            ok();
+        } else if (command.equals("h0") || command.equals("h1")) {
+            headers = command.endsWith("1");
+            ok();
+        } else if (command.startsWith("fcsh") && isHex(command.substring(4))) {
+            ok();
+        } else if (command.startsWith("fcsd") && command.length() == 10 && isHex(command.substring(4))) {
+            // flow control, block size, separation time
+            int time = Integer.parseInt(command.substring(8), 16);
+            separationTime = time <= 0x7f ? time : 0;
+            ok();
+        } else if (command.startsWith("sh") && command.length() == 5 && isHex(command.substring(2))) {
+            header = Integer.parseInt(command.substring(2), 16);
+            ok();
+        } else if (command.startsWith("cra") && command.length() == 6) {
+            String filter = command.substring(3);
+            if (!isHex(filter.replace('x', '0'))) {
+                send("?\r" + PROMPT);
+                return;
+            }
+            receiveFilter = filter;
+            ok();
+        } else if (command.equals("ar")) {
+            receiveFilter = null;
+            ok();
+        } else if (command.equals("ma")) {
+            monitor();
+        } else if (command.startsWith("sp") || command.startsWith("at") || command.startsWith("caf") || command.startsWith("fcsm")) {
+            ok();
+        } else {
+            send("?\r" + PROMPT);
+        }
+    }
+
+    private void ok()
+    {
+        send("OK\r" + PROMPT);
+    }
+
+    // send the free frames passing the filter until anything is written
+    private void monitor() throws InterruptedException
+    {
+        // a filter for a single frame makes the car send it
+        if (receiveFilter != null && receiveFilter.indexOf('x') < 0)
+            car.getFreeFrame(Integer.parseInt(receiveFilter, 16));
+
+        int[] ids = car.getFreeFrameIds();
+        long[] due = new long[ids.length];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ids.length; i++) {
+            // the frames come in at some point of their interval
+            due[i] = now + (long) (Math.random() * car.getInterval(ids[i]));
+        }
+
+        StringBuilder line = new StringBuilder(32);
+        while (!interrupted()) {
+            now = System.currentTimeMillis();
+            long next = now + 10;
+            for (int i = 0; i < ids.length; i++) {
+                if (!passes(ids[i])) continue;
+                if (due[i] <= now) {
+                    line.setLength(0);
+                    if (headers) line.append(Integer.toHexString(0x1000 | ids[i]).substring(1).toUpperCase());
+                    appendBytes(line, car.getFreeFrame(ids[i]), headers);
+                    line.append('\r');
+                    send(line);
+                    due[i] = now + car.getInterval(ids[i]);
+                }
+                next = Math.min(next, due[i]);
+            }
+            if (next > now) Thread.sleep(next - now);
+        }
+        send("STOPPED\r" + PROMPT);
+    }
+
+    private boolean passes(int id)
+    {
+        if (receiveFilter == null) return true;
+        for (int i = 0; i < 3; i++) {
+            char filter = receiveFilter.charAt(i);
+            if (filter != 'x' && Character.digit(filter, 16) != ((id >> (8 - 4 * i)) & 0xf)) return false;
+        }
+        return true;
+    }
+
+    // answer an ISO-TP request, the first byte being the single frame PCI
+    private void handleRequest(String command) throws InterruptedException
+    {
+        int length = Character.digit(command.charAt(1), 16);
+        if (command.charAt(0) != '0' || command.length() < 2 + 2 * length) {
+            send("?\r" + PROMPT);
+            return;
+        }
+        String response = car.getResponseTo(header, command.substring(2, 2 + 2 * length));
+        if (response == null) {
+            send("NO DATA\r" + PROMPT);
+            return;
+        }
+
+        int bytes = response.length() / 2;
+        StringBuilder line = new StringBuilder(32);
+        if (bytes <= 7) {
+            // single frame
+            line.append('0').append(Character.toUpperCase(Character.forDigit(bytes, 16)));
+            appendFrame(line, response, 0);
+            send(line);
+        } else {
+            // first frame, 6 bytes
+            line.append('1').append(Integer.toHexString(0x1000 | bytes).substring(1).toUpperCase());
+            appendFrame(line, response, 0);
+            send(line);
+            // consecutive frames, 7 bytes each
+            int sequence = 1;
+            for (int offset = 12; offset < response.length(); offset += 14) {
+                if (separationTime > 0) Thread.sleep(separationTime);
+                line.setLength(0);
+                line.append('2').append(Character.toUpperCase(Character.forDigit(sequence, 16)));
+                appendFrame(line, response, offset);
+                send(line);
+                sequence = (sequence + 1) & 0xf;
+            }
+        }
+        send(PROMPT);
+    }
+
+    // append the data of one CAN frame (the PCI already in the line), padded to 8 bytes
+    private void appendFrame(StringBuilder line, String hex, int offset)
+    {
+        int end = Math.min(hex.length(), offset + 16 - line.length());
+        StringBuilder data = new StringBuilder(16);
+        data.append(line);
+        data.append(hex, offset, end);
+        while (data.length() < 16) data.append("55");
+        line.setLength(0);
+        appendBytes(line, data, false);
+        line.append('\r');
+    }
+
+    private void appendBytes(StringBuilder line, CharSequence hex, boolean separate)
+    {
+        for (int i = 0; i + 1 < hex.length(); i += 2) {
+            if (spaces && (i > 0 || separate)) line.append(' ');
+            line.append(hex.charAt(i)).append(hex.charAt(i + 1));
+        }
+    }
+
+    private static boolean isHex(String text)
+    {
+        if (text.isEmpty()) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+}
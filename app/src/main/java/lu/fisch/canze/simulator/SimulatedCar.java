@@ -0,0 +1,150 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.simulator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The data the simulated dongles answer with. Free frames and ISO-TP
+ * responses can be set up explicitly; anything else gets a generated answer,
+ * so every screen gets data without any setup.
+ *
+ * Generated free frames are 8 bytes changing over time, generated ISO-TP
+ * responses are a positive response echoing the request, padded to 62 bytes
+ * for service 0x21 (e.g. the LBC cell voltages) and 4 more bytes otherwise.
+ */
+public class SimulatedCar {
+
+    private static final int DEFAULT_INTERVAL = 100;
+
+    private final HashMap<Integer, String> frames = new HashMap<>();
+    private final HashMap<Integer, Integer> intervals = new HashMap<>();
+    // free frame ids in the order they got known
+    private final ArrayList<Integer> frameIds = new ArrayList<>();
+    private final HashMap<String, String> responses = new HashMap<>();
+
+    /**
+     * @param id        the CAN id of the frame
+     * @param interval  the interval the car sends it with (ms)
+     * @param payload   the payload in hex, null to generate it
+     */
+    public synchronized void setFreeFrame(int id, int interval, String payload)
+    {
+        if (!intervals.containsKey(id)) frameIds.add(id);
+        intervals.put(id, interval);
+        if (payload != null) frames.put(id, payload.toUpperCase());
+        else frames.remove(id);
+    }
+
+    /**
+     * @param toId      the id the ECU listens to
+     * @param fromId    the id the ECU answers with
+     * @param request   the request in hex, e.g. 2101
+     * @param response  the response in hex, e.g. 6101...
+     */
+    public synchronized void setResponse(int toId, int fromId, String request, String response)
+    {
+        responses.put(key("to", toId, request), response.toUpperCase());
+        responses.put(key("from", fromId, request), response.toUpperCase());
+    }
+
+    /**
+     * @return  the ids of all free frames known so far
+     */
+    public synchronized int[] getFreeFrameIds()
+    {
+        int[] ids = new int[frameIds.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = frameIds.get(i);
+        return ids;
+    }
+
+    public synchronized int getInterval(int id)
+    {
+        Integer interval = intervals.get(id);
+        return interval != null ? interval : DEFAULT_INTERVAL;
+    }
+
+    /**
+     * Get the payload of a free frame. A frame not known yet is added, so it
+     * is sent from now on.
+     * @param id    the CAN id of the frame
+     * @return      the payload in hex
+     */
+    public synchronized String getFreeFrame(int id)
+    {
+        if (!intervals.containsKey(id)) setFreeFrame(id, DEFAULT_INTERVAL, null);
+        String payload = frames.get(id);
+        if (payload != null) return payload;
+
+        StringBuilder generated = new StringBuilder(16);
+        long tick = System.currentTimeMillis() / DEFAULT_INTERVAL;
+        for (int i = 0; i < 8; i++) appendHex(generated, (int) (id + i * 31 + tick));
+        return generated.toString();
+    }
+
+    /**
+     * @param toId      the id the ECU listens to
+     * @param request   the request in hex
+     * @return          the response in hex
+     */
+    public String getResponseTo(int toId, String request)
+    {
+        return getResponse(key("to", toId, request), request);
+    }
+
+    /**
+     * @param fromId    the id the ECU answers with
+     * @param request   the request in hex
+     * @return          the response in hex
+     */
+    public String getResponseFrom(int fromId, String request)
+    {
+        return getResponse(key("from", fromId, request), request);
+    }
+
+    private synchronized String getResponse(String key, String request)
+    {
+        String response = responses.get(key);
+        if (response != null) return response;
+        if (request.length() < 2) return null;
+
+        int service = Integer.parseInt(request.substring(0, 2), 16);
+        StringBuilder generated = new StringBuilder(128);
+        appendHex(generated, service + 0x40);
+        generated.append(request.substring(2).toUpperCase());
+        int length = service == 0x21 ? 62 : request.length() / 2 + 4;
+        for (int i = 0; generated.length() < length * 2; i++) appendHex(generated, i * 7);
+        return generated.toString();
+    }
+
+    private static String key(String kind, int id, String request)
+    {
+        return kind + Integer.toHexString(id) + "." + request.toUpperCase();
+    }
+
+    static void appendHex(StringBuilder buffer, int value)
+    {
+        buffer.append(Character.toUpperCase(Character.forDigit((value >> 4) & 0xf, 16)));
+        buffer.append(Character.toUpperCase(Character.forDigit(value & 0xf, 16)));
+    }
+}
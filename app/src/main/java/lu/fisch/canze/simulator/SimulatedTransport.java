@@ -0,0 +1,273 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.simulator;
+
+import java.io.IOException;
+import java.util.Random;
+
+import lu.fisch.canze.bluetooth.ReceiveBuffer;
+import lu.fisch.canze.interfaces.Transport;
+
+/**
+ * Base of the simulated dongles. What a device writes is queued up and
+ * handled line by line on a thread of its own, the answers go into the same
+ * kind of receive buffer the Bluetooth connection uses, so the devices can't
+ * tell the difference.
+ *
+ * Every answer is delayed by the configured latency plus a random jitter, so
+ * the timing behaviour of a real dongle can be approached. The simulators only
+ * depend on plain Java, so they can be run outside of Android.
+ */
+public abstract class SimulatedTransport implements Transport {
+
+    private final ReceiveBuffer receiveBuffer = new ReceiveBuffer();
+
+    // what has been written but not yet been handled
+    private final StringBuilder input = new StringBuilder();
+
+    private Thread worker = null;
+    private volatile boolean connected = false;
+
+    private int latency = 20;
+    private int jitter = 10;
+    private final Random random = new Random();
+
+    // some statistics for the benchmarks
+    private volatile long commandCount = 0;
+    private volatile long bytesSent = 0;
+
+    /* --------------------------------
+     * Simulation
+     \ ------------------------------ */
+
+    /**
+     * Handle one command line, the line terminator already removed
+     * @param command   the command
+     */
+    protected abstract void handle(String command) throws InterruptedException;
+
+    /**
+     * Reset the simulated dongle to the state it has after power up
+     */
+    protected abstract void reset();
+
+    /**
+     * Set the time it takes before an answer starts coming in
+     * @param latency   the mean latency in ms
+     * @param jitter    the maximum deviation from it in ms
+     */
+    public void setLatency(int latency, int jitter)
+    {
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    public void connect()
+    {
+        if (connected) return;
+        reset();
+        synchronized (input) {
+            input.setLength(0);
+        }
+        receiveBuffer.open();
+        connected = true;
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (connected) {
+                        String command = nextLine();
+                        if (command != null) {
+                            commandCount++;
+                            handle(command);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // disconnected
+                }
+            }
+        });
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void disconnect()
+    {
+        connected = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+        }
+        receiveBuffer.close();
+    }
+
+    public long getCommandCount()
+    {
+        return commandCount;
+    }
+
+    public long getBytesSent()
+    {
+        return bytesSent;
+    }
+
+    /* --------------------------------
+     * Helpers for the simulators
+     \ ------------------------------ */
+
+    // wait for the next complete line of input and take it, null if there is none in time
+    private String nextLine() throws InterruptedException
+    {
+        synchronized (input) {
+            int end = lineEnd();
+            if (end < 0) {
+                input.wait(100);
+                end = lineEnd();
+                if (end < 0) return null;
+            }
+            String line = input.substring(0, end);
+            // swallow the terminator, and the second half of a \r\n
+            int next = end + 1;
+            if (next < input.length() && input.charAt(end) == '\r' && input.charAt(next) == '\n') next++;
+            input.delete(0, next);
+            return line;
+        }
+    }
+
+    private int lineEnd()
+    {
+        for (int i = 0; i < input.length(); i++) {
+            char ch = input.charAt(i);
+            if (ch == '\r' || ch == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether something has been written while a long running command
+     * was active, and take the first character if so (like the ELM does when
+     * it stops monitoring)
+     * @return  true if the command has been interrupted
+     */
+    protected boolean interrupted()
+    {
+        synchronized (input) {
+            if (input.length() == 0) return false;
+            input.deleteCharAt(0);
+            return true;
+        }
+    }
+
+    /**
+     * Wait for the latency of an answer
+     */
+    protected void delay() throws InterruptedException
+    {
+        int millis = latency + (jitter > 0 ? random.nextInt(2 * jitter + 1) - jitter : 0);
+        if (millis > 0) Thread.sleep(millis);
+    }
+
+    /**
+     * Put an answer into the receive buffer
+     * @param text  the characters to send
+     */
+    protected void send(CharSequence text)
+    {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) text.charAt(i);
+        receiveBuffer.put(bytes, bytes.length);
+        bytesSent += bytes.length;
+    }
+
+    /* --------------------------------
+     * Transport
+     \ ------------------------------ */
+
+    @Override
+    public boolean isConnected()
+    {
+        return connected;
+    }
+
+    @Override
+    public void write(String message)
+    {
+        if (!connected) return;
+        synchronized (input) {
+            input.append(message);
+            input.notifyAll();
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer) throws IOException
+    {
+        return receiveBuffer.read(buffer);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        return receiveBuffer.read();
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return receiveBuffer.available();
+    }
+
+    @Override
+    public boolean waitForData(long deadline)
+    {
+        return receiveBuffer.waitForData(deadline);
+    }
+
+    @Override
+    public int readLine(StringBuilder line, long deadline, String terminators)
+    {
+        return receiveBuffer.readLine(line, deadline, terminators);
+    }
+
+    @Override
+    public String readLine(long deadline, String terminators)
+    {
+        return receiveBuffer.readLine(deadline, terminators);
+    }
+
+    @Override
+    public boolean waitFor(char stop, long deadline)
+    {
+        return receiveBuffer.waitFor(stop, deadline);
+    }
+
+    @Override
+    public boolean skip(char stop)
+    {
+        return receiveBuffer.skip(stop);
+    }
+}
@@ -587,10 +587,16 @@ public class Timeplot extends Drawable {
     public void loadValuesFromDatabase() {
         super.loadValuesFromDatabase();
 
+        // only load what fits on the plot: each pixel covers timeSale seconds and gets two points at most
+        int pixels = getWidth() > 0 ? getWidth() : 3600;
+        long to = Calendar.getInstance().getTimeInMillis();
+        long from = to - (long) pixels * timeSale * 1000;
+        int maxPoints = 2 * pixels;
+
         //values.clear(); // not needed as items will be replaced anyway!
         for(int s=0; s<sids.size(); s++) {
             String sid = sids.get(s);
-            values.put(sid, CanzeDataSource.getInstance().getData(sid));
+            values.put(sid, CanzeDataSource.getInstance().getData(sid, from, to, maxPoints));
         }
     }
 
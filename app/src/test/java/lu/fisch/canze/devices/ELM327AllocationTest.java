@@ -0,0 +1,179 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.devices;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import lu.fisch.canze.actors.Ecu;
+import lu.fisch.canze.actors.Ecus;
+import lu.fisch.canze.actors.Field;
+import lu.fisch.canze.actors.Fields;
+import lu.fisch.canze.actors.Frame;
+import lu.fisch.canze.actors.Message;
+import lu.fisch.canze.interfaces.FieldListener;
+import lu.fisch.canze.simulator.ElmSimulator;
+import lu.fisch.canze.simulator.SimulatedCar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the ISO-TP poll path of the ELM327 doesn't produce garbage:
+ * once warmed up, a multi-frame response only costs its Message, and a poll
+ * of it, dispatch to the fields and their listeners included, nothing more
+ * than what the listeners are handed.
+ */
+public class ELM327AllocationTest {
+
+    // the simulator keeps the 16 ms separation time the ELM asks for, so a request takes ~140 ms
+    private static final int WARMUP = 50;
+    private static final int REQUESTS = 100;
+    // room for one-off allocations of the JVM itself (the compiler deoptimizing once
+    // costs ~3 KB), still less than half a Message per response
+    private static final long SLACK = 4096;
+
+    private ElmSimulator simulator;
+    private ELM327 elm;
+    private Field field;
+    // a second field carried by the same response
+    private Field otherField;
+    // the notifications of both fields
+    private int updates = 0;
+    private final FieldListener listener = new FieldListener() {
+        @Override
+        public void onFieldUpdateEvent(Field field) {
+            updates++;
+        }
+    };
+
+    @Before
+    public void setUp()
+    {
+        Ecu lbc = new Ecu("Lithium Battery Controller", 938, "E", 0x7bb, 0x79b, "LBC", "-");
+        if (Ecus.getInstance().getByFromId(0x7bb) == null) Ecus.getInstance().add(lbc);
+        // 62 bytes: a first frame and 8 consecutive frames
+        Frame frame = new Frame(0x7bb, 0, lbc);
+        field = register(new Field(frame, (short) 16, (short) 31, 1, 0, 0, "", "2141", "6141", (short) 2));
+        otherField = register(new Field(frame, (short) 32, (short) 47, 1, 0, 0, "", "2141", "6141", (short) 2));
+        // as a screen showing them would
+        field.addListener(listener);
+        otherField.addListener(listener);
+
+        simulator = new ElmSimulator(new SimulatedCar());
+        simulator.setLatency(0, 0);
+        simulator.connect();
+        elm = new ELM327();
+        elm.setTransport(simulator);
+        assertTrue("init", elm.initDevice(0));
+    }
+
+    @After
+    public void tearDown()
+    {
+        field.removeListener(listener);
+        otherField.removeListener(listener);
+        simulator.disconnect();
+    }
+
+    // the field as the registry knows it, the registry outlives the test
+    private static Field register(Field field)
+    {
+        Field registered = Fields.getInstance().getBySID(field.getSID());
+        if (registered != null) return registered;
+        Fields.getInstance().add(field);
+        return field;
+    }
+
+    @Test
+    public void multiFrameResponseOnlyAllocatesTheMessage()
+    {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+        Message[] messages = new Message[REQUESTS];
+        byte[] payload = new byte[62];
+
+        for (int i = 0; i < WARMUP; i++) {
+            Message message = elm.requestIsoTpFrame(field);
+            assertNotNull("warm up " + i, message);
+        }
+
+        // what the messages alone cost
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < REQUESTS; i++) messages[i] = new Message(field, payload, payload.length);
+        long baseline = threads.getThreadAllocatedBytes(threadId) - before;
+
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < REQUESTS; i++) messages[i] = elm.requestIsoTpFrame(field);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        for (int i = 0; i < REQUESTS; i++) {
+            assertNotNull("request " + i, messages[i]);
+            assertEquals(62, messages[i].getBytes().length);
+        }
+        assertTrue("allocated " + allocated + " bytes for " + REQUESTS + " responses, the messages take " + baseline,
+                allocated <= baseline + SLACK);
+    }
+
+    @Test
+    public void pollOnlyAllocatesTheMessageAndTheSnapshots()
+    {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+        Message[] messages = new Message[REQUESTS];
+        byte[] payload = new byte[62];
+        Field[] fields = {field, otherField};
+
+        // polled as fast as possible, as addActivityField does it, without the database
+        RequestUnit unit = new RequestUnit(field);
+        unit.addField(field, 0);
+        elm.activityFieldsAsFastAsPossible.add(unit);
+
+        for (int i = 0; i < WARMUP; i++) elm.queryNextFilter();
+
+        // what the messages and the notifications of the listeners alone cost
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < REQUESTS; i++) {
+            messages[i] = new Message(field, payload, payload.length);
+            for (Field frameField : fields) frameField.notifyFieldListeners();
+        }
+        long baseline = threads.getThreadAllocatedBytes(threadId) - before;
+
+        int updates = this.updates;
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < REQUESTS; i++) elm.queryNextFilter();
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals("updates", REQUESTS * fields.length, this.updates - updates);
+        assertTrue("allocated " + allocated + " bytes for " + REQUESTS + " polls, the messages and snapshots take " + baseline,
+                allocated <= baseline + SLACK);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+    CanZE
+    Take a closer look at your ZE car
+
+    Copyright (C) 2015 - The CanZE Team
+    http://canze.fisch.lu
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.canze.devices;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import lu.fisch.canze.actors.Ecu;
+import lu.fisch.canze.actors.Ecus;
+import lu.fisch.canze.actors.Field;
+import lu.fisch.canze.actors.Frame;
+import lu.fisch.canze.actors.Message;
+import lu.fisch.canze.simulator.ElmSimulator;
+import lu.fisch.canze.simulator.SimulatedCar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the ELM327 against the simulated dongle: decoding of free frames and
+ * ISO-TP answers, and the number of commands the requests cost, one by one
+ * and in a batched free frame capture.
+ */
+public class ELM327SimulatorTest {
+
+    private static final int REQUESTS = 20;
+    private static final int ROUNDS = 10;
+
+    private SimulatedCar car;
+    private ElmSimulator simulator;
+    private ELM327 elm;
+    private Ecu lbc;
+    private Ecu evc;
+
+    @Before
+    public void setUp()
+    {
+        lbc = new Ecu("Lithium Battery Controller", 938, "E", 0x7bb, 0x79b, "LBC", "-");
+        evc = new Ecu("Electric Vehicle Controller", 946, "E", 0x7ec, 0x7e4, "EVC", "SCH");
+        if (Ecus.getInstance().getByFromId(0x7bb) == null) Ecus.getInstance().add(lbc);
+        if (Ecus.getInstance().getByFromId(0x7ec) == null) Ecus.getInstance().add(evc);
+
+        car = new SimulatedCar();
+        simulator = new ElmSimulator(car);
+        simulator.setLatency(0, 0);
+        simulator.connect();
+        elm = new ELM327();
+        elm.setTransport(simulator);
+        assertTrue("init", elm.initDevice(0));
+    }
+
+    @After
+    public void tearDown()
+    {
+        simulator.disconnect();
+    }
+
+    private Field isoTpField(Ecu ecu, String requestId, String responseId)
+    {
+        return new Field(new Frame(ecu.getFromId(), 0, ecu), (short) 16, (short) 23, 1, 0, 0, "", requestId, responseId, (short) 2);
+    }
+
+    private Field freeFrameField(int id, int interval)
+    {
+        return new Field(new Frame(id, interval, evc), (short) 0, (short) 7, 1, 0, 0, "", "", "", (short) 2);
+    }
+
+    @Test
+    public void singleFrame()
+    {
+        car.setResponse(0x79b, 0x7bb, "2101", "6101AABBCC");
+        Message message = elm.requestIsoTpFrame(isoTpField(lbc, "2101", "6101"));
+        assertNotNull(message);
+        assertEquals("6101AABBCC", message.getData());
+    }
+
+    @Test
+    public void multiFrame()
+    {
+        // 62 bytes: a first frame and 8 consecutive frames
+        Message message = elm.requestIsoTpFrame(isoTpField(lbc, "2141", "6141"));
+        assertNotNull(message);
+        assertEquals(car.getResponseTo(0x79b, "2141"), message.getData());
+    }
+
+    @Test
+    public void freeFrame()
+    {
+        car.setFreeFrame(0x42e, 100, "0011223344556677");
+        Message message = elm.requestFreeFrame(freeFrameField(0x42e, 100));
+        assertNotNull(message);
+        assertEquals("0011223344556677", message.getData());
+    }
+
+    @Test
+    public void freeFramesInOneCapture()
+    {
+        car.setFreeFrame(0x42a, 100, "1011121314151617");
+        car.setFreeFrame(0x42e, 100, "2021222324252627");
+        car.setFreeFrame(0x654, 100, "3031323334353637");
+        ArrayList<Field> fields = new ArrayList<>();
+        fields.add(freeFrameField(0x42a, 100));
+        fields.add(freeFrameField(0x42e, 100));
+        long commands = simulator.getCommandCount();
+        ArrayList<Message> messages = elm.requestFreeFrames(fields);
+
+        assertEquals(2, messages.size());
+        for (Message message : messages) {
+            assertEquals(message.getField().getId() == 0x42a ? "1011121314151617" : "2021222324252627", message.getData());
+        }
+        // atcra42x, ath1 and atma, not two rounds of atcra and atma
+        assertEquals(3, simulator.getCommandCount() - commands);
+    }
+
+    @Test
+    public void repeatedRequests()
+    {
+        car.setResponse(0x7e4, 0x7ec, "2101", "6101AABBCC");
+        car.setFreeFrame(0x42e, 100, "0011223344556677");
+
+        // once the ELM is addressed, or its filter set, a request is a single command
+        assertEquals("single frame", REQUESTS, commandsFor(isoTpField(evc, "2101", "6101")));
+        assertEquals("9 frames", REQUESTS, commandsFor(isoTpField(lbc, "2141", "6141")));
+        assertEquals("free frame", REQUESTS, commandsFor(freeFrameField(0x42e, 100)));
+    }
+
+    @Test
+    public void freeFramesOneByOneAndInOneCapture()
+    {
+        // four frames of the same group
+        ArrayList<Field> fields = new ArrayList<>();
+        for (int id = 0x424; id <= 0x42a; id += 2) {
+            car.setFreeFrame(id, 100, "1011121314151617");
+            fields.add(freeFrameField(id, 100));
+        }
+
+        // one by one, each frame needs its filter and a monitoring
+        long commands = simulator.getCommandCount();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (Field field : fields) assertNotNull(field.getSID() + " " + i, elm.requestFreeFrame(field));
+        }
+        assertEquals(2 * fields.size() * ROUNDS, simulator.getCommandCount() - commands);
+
+        // in one go, the filter and the headers are set once, then a round is a single monitoring
+        assertEquals(fields.size(), elm.requestFreeFrames(fields).size());
+        commands = simulator.getCommandCount();
+        for (int i = 0; i < ROUNDS; i++) {
+            assertEquals(fields.size(), elm.requestFreeFrames(fields).size());
+        }
+        assertEquals(ROUNDS, simulator.getCommandCount() - commands);
+    }
+
+    // the commands sent to request a field REQUESTS times, after a first request
+    private long commandsFor(Field field)
+    {
+        assertNotNull(field.getSID(), elm.requestField(field));
+        long commands = simulator.getCommandCount();
+        for (int i = 0; i < REQUESTS; i++) {
+            assertNotNull(field.getSID() + " " + i, elm.requestField(field));
+        }
+        return simulator.getCommandCount() - commands;
+    }
+}